@@ -0,0 +1,95 @@
+package apryraz.tworld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+*  Throughput of TreasureWorldEnv.acceptMessage for moveto and detected
+*  questions, walking along the whole world, by one thread and by four
+*  threads sharing the same environment
+**/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvironmentBenchmark {
+
+    @Param({"10", "50", "100", "200", "500"})
+    int dim;
+
+    TreasureWorldEnv env;
+    AMessage request = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+    AMessage answer = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+    int x, y;
+
+    @Setup
+    public void setUp() {
+        env = new TreasureWorldEnv(dim, (dim + 1) / 2, (dim + 1) / 2);
+        env.setEventSink(EventSink.NONE);
+        x = 1;
+        y = 1;
+    }
+
+    private void nextPosition() {
+        if (++y > dim) {
+            y = 1;
+            if (++x > dim) {
+                x = 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public AMessage moveto() {
+        nextPosition();
+        return env.acceptMessage(request.set(AMessage.Kind.MOVETO, x, y, AMessage.NONE), answer);
+    }
+
+    @Benchmark
+    public AMessage detected() {
+        nextPosition();
+        return env.acceptMessage(request.set(AMessage.Kind.DETECTED, x, y, AMessage.NONE), answer);
+    }
+
+    /**
+     * One environment for all the threads of the benchmark
+     **/
+    @State(Scope.Benchmark)
+    public static class SharedWorld {
+        @Param({"10", "500"})
+        int dim;
+
+        TreasureWorldEnv env;
+
+        @Setup
+        public void setUp() {
+            env = new TreasureWorldEnv(dim, (dim + 1) / 2, (dim + 1) / 2, EventSink.NONE);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AMessage sharedDetected(SharedWorld world) {
+        if (++y > world.dim) {
+            y = 1;
+            if (++x > world.dim) {
+                x = 1;
+            }
+        }
+        return world.env.acceptMessage(request.set(AMessage.Kind.DETECTED, x, y, AMessage.NONE), answer);
+    }
+}
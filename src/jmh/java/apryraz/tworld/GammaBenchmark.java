@@ -0,0 +1,45 @@
+package apryraz.tworld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+*  Cost of making a TreasureFinder, that is dominated by buildGamma(), and
+*  of making it with a solver taken from a GammaPool and given back
+**/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GammaBenchmark {
+
+    @Param({"10", "50", "100", "200", "500"})
+    int dim;
+
+    GammaPool gammas = new GammaPool(1);
+
+    @Benchmark
+    public TreasureFinder buildGamma() {
+        return new TreasureFinder(dim, EventSink.NONE);
+    }
+
+    @Benchmark
+    public TreasureFinder pooledGamma() {
+        SatInferenceBackend inference = new SatInferenceBackend(dim, true, gammas);
+        TreasureFinder TAgent = new TreasureFinder(dim, EventSink.NONE, inference);
+        inference.release();
+        return TAgent;
+    }
+}
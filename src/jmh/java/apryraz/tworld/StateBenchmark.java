@@ -0,0 +1,46 @@
+package apryraz.tworld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+*  Cost of comparing two states of knowledge that are equal, so the whole
+*  state has to be compared
+**/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateBenchmark {
+
+    @Param({"10", "50", "100", "200", "500"})
+    int dim;
+
+    TFState state, same;
+
+    @Setup
+    public void setUp() {
+        state = new TFState(dim);
+        SensorModel sensor = SensorModel.of(dim);
+        state.discard(sensor.lineal(3, 3), sensor.neighbourhood(3, 3, 3));
+        same = state.copy();
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return state.equals(same);
+    }
+}
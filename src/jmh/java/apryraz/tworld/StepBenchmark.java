@@ -0,0 +1,86 @@
+package apryraz.tworld;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+*  Cost of one step of the agent, and of the inference questions of that
+*  step alone. Every invocation starts from a new agent (made outside of
+*  the measured time) whose only step is in the middle of the world: with
+*  reading 1 it is next to the Treasure, and with reading 3 the Treasure
+*  is in a corner, far from the step.
+**/
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StepBenchmark {
+
+    @State(Scope.Thread)
+    public static class Agent {
+        @Param({"10", "50", "100", "200", "500"})
+        int dim;
+
+        @Param({"1", "3"})
+        int reading;
+
+        TreasureFinder finder;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException, ContradictionException, TimeoutException {
+            int middle = (dim + 1) / 2;
+            int treasure = reading == 1 ? middle : 1;
+            finder = new TreasureFinder(dim, EventSink.NONE);
+            TreasureWorldEnv env = new TreasureWorldEnv(dim, treasure, treasure);
+            env.setEventSink(EventSink.NONE);
+            finder.setEnvironment(env);
+
+            ArrayList<Position> steps = new ArrayList<Position>();
+            steps.add(new Position(middle, Math.min(middle + 1, dim)));
+            finder.setListOfSteps(steps);
+        }
+    }
+
+    /**
+     * The agent with its step already moved and sensed, so only the
+     * inference questions remain
+     **/
+    @State(Scope.Thread)
+    public static class Sensed extends Agent {
+        @Setup(Level.Invocation)
+        public void sense() throws IOException, ContradictionException, TimeoutException {
+            finder.addLastFutureClausesToPastClauses();
+            finder.processMoveAnswer(finder.moveToNext());
+            finder.processDetectorSensorAnswer(finder.DetectsAt());
+        }
+    }
+
+    @Benchmark
+    public TFState runNextStep(Agent agent) throws IOException, ContradictionException, TimeoutException {
+        agent.finder.runNextStep();
+        return agent.finder.getState();
+    }
+
+    @Benchmark
+    public TFState performInferenceQuestions(Sensed agent) throws IOException, ContradictionException, TimeoutException {
+        agent.finder.performInferenceQuestions();
+        return agent.finder.getState();
+    }
+}
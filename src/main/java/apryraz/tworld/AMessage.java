@@ -5,48 +5,161 @@ package apryraz.tworld;
 *  World interface object
 **/
 public class AMessage {
+
+/**
+*  Types of message. Each one keeps the name used in the text form of
+*  the message.
+**/
+ public enum Kind {
+   MOVETO("moveto"), MOVEDTO("movedto"), NOTMOVEDTO("notmovedto"),
+   DETECTED("detected"), NOTDETECTSAT("notdetectsat"),
+   VOIDMSG("voidmsg"), NOMESSAGE("NOMESSAGE");
+
+   private final String text;
+
+   Kind( String text ) {
+     this.text = text;
+   }
+
+   /**
+   *  @return the name of this type in the text form of the messages
+   **/
+   public String text() {
+     return text;
+   }
+
+   /**
+   *  @param text name of a message type in the text form
+   *  @return the type with that name
+   *  @throws IllegalArgumentException if there is no type with that name
+   **/
+   public static Kind fromText( String text ) {
+     for (Kind kind : values()) {
+       if (kind.text.equals(text)) {
+         return kind;
+       }
+     }
+     throw new IllegalArgumentException("Unknown message type: " + text);
+   }
+ }
+
+/**
+*  Value of the parameters that a message does not use
+**/
+ public static final int NONE = Integer.MIN_VALUE;
+
   /*
-  *  Array of String objects, that represent the different fields of each message
-  *  So far, we assume a fixed pattern, with always three fields in any message:
-  *  field0:  message type: moveto, movedto, notmovedto, detects at, yes/no ...
-  *  field1:  first parameter of message
-  *  field2:  second parameter of message
+  *  Fields of the message. So far, we assume a fixed pattern, with always
+  *  three parameters in any message:
+  *  kind:  message type: moveto, movedto, notmovedto, detected ...
+  *  x, y:  coordinates of the position the message is about
+  *  value: sensor reading, only in detected answers
   */
- String[] msg ;
+ Kind kind;
+ int x, y, value;
 
 /**
 *  Class constructor
 *
+*  @param kind  message type
+*  @param x  first parameter of message
+*  @param y  second parameter of message
+*  @param value  third parameter of message, or NONE
+**/
+ public AMessage( Kind kind, int x, int y, int value ) {
+   set(kind, x, y, value);
+ }
+
+/**
+*  Class constructor from the text form of the message. Empty parameters
+*  are stored as NONE.
+*
 *  @param msgtype  message type
 *  @param par1:  first parameter of message
 *  @param par2:  second parameter of message
    @param par3:  third parameter of message
 **/
  public AMessage( String msgtype, String par1, String par2, String par3 ) {
-   msg = new String[4];
+   this(Kind.fromText(msgtype), parseParameter(par1), parseParameter(par2),
+        parseParameter(par3));
+ }
 
-   msg[0] = msgtype;
-   msg[1] = par1;
-   msg[2] = par2;
-   msg[3] = par3;
+ /**
+ *  Overwrite all the fields of the message, so the same object can be
+ *  reused for many messages
+ *
+ *  @param kind  message type
+ *  @param x  first parameter of message
+ *  @param y  second parameter of message
+ *  @param value  third parameter of message, or NONE
+ *  @return this message
+ **/
+ public AMessage set( Kind kind, int x, int y, int value ) {
+   this.kind = kind;
+   this.x = x;
+   this.y = y;
+   this.value = value;
+   return this;
+ }
+
+ public Kind getKind() {
+   return kind;
+ }
+
+ public int getX() {
+   return x;
+ }
+
+ public int getY() {
+   return y;
+ }
+
+ public int getValue() {
+   return value;
  }
 
  /**
  *  Show message on screen
  **/
  public void showMessage() {
-     System.out.println( "MESSAGE: "+msg[0]+ " "+ msg[1] + " "+ msg[2]+ " "+msg[3] );
+     System.out.println( toString() );
+ }
+
+ /**
+ *  @return the text shown by showMessage
+ **/
+ public String toString() {
+     return "MESSAGE: "+getComp(0)+ " "+ getComp(1) + " "+ getComp(2)+ " "+getComp(3);
  }
 
  /**
- *  get some part of the message
+ *  get some part of the message, in its text form
  *
  * @param c index of the component to return
  *
  * @return the String corresponding to the component requested
  **/
  public String getComp(int c) {
-   return msg[c];
+   switch (c) {
+     case 0:
+       return kind.text();
+     case 1:
+       return parameterText(x);
+     case 2:
+       return parameterText(y);
+     case 3:
+       return parameterText(value);
+     default:
+       throw new IndexOutOfBoundsException("Message component " + c);
+   }
+ }
+
+ private static int parseParameter( String par ) {
+   return par.isEmpty() ? NONE : Integer.parseInt(par);
+ }
+
+ private static String parameterText( int par ) {
+   return par == NONE ? "" : Integer.toString(par);
  }
 
 }
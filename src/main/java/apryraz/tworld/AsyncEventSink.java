@@ -0,0 +1,167 @@
+package apryraz.tworld;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+*  Sink that hands the events to a background thread, which delivers them
+*  to another sink. The agent only pays for putting the event in a queue
+*  (and for copying the state, when states are wanted), and the writing
+*  itself never blocks the steps unless the queue is full. An exception of
+*  the delegate sink loses only the event that caused it: the first one is
+*  logged and kept, and the background thread goes on with the others.
+*  The events sent after close(), or once the background thread is gone,
+*  are dropped instead of waiting forever for room in the queue.
+**/
+public class AsyncEventSink implements EventSink {
+    /**
+     * Queued event: a trace line, a copy of a state or, when both are
+     * null, the position of the located Treasure
+     **/
+    private static final class Event {
+        final Level level;
+        final String text;
+        final int step;
+        final TFState state;
+        final int x, y;
+
+        Event(Level level, String text, int step, TFState state) {
+            this(level, text, step, state, 0, 0);
+        }
+
+        Event(Level level, String text, int step, TFState state, int x, int y) {
+            this.level = level;
+            this.text = text;
+            this.step = step;
+            this.state = state;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static final Event END = new Event(null, null, 0, null);
+
+    EventSink delegate;
+    BlockingQueue<Event> queue;
+    Thread writer;
+/**
+*  First exception thrown by the delegate, and number of events lost
+*  because the delegate threw an exception
+**/
+    volatile Throwable failure;
+    volatile long failedEvents;
+    volatile boolean closed;
+
+    /**
+     * Class constructor. Starts the background thread.
+     *
+     * @param delegate sink that receives the events in the background thread
+     * @param capacity maximum number of events waiting in the queue
+     **/
+    public AsyncEventSink(EventSink delegate, int capacity) {
+        this.delegate = delegate;
+        queue = new ArrayBlockingQueue<Event>(capacity);
+        writer = new Thread(this::deliver, "event-sink-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isEnabled(Level level) {
+        return delegate.isEnabled(level);
+    }
+
+    public void event(Level level, String text) {
+        put(new Event(level, text, 0, null));
+    }
+
+    public boolean wantsStates() {
+        return delegate.wantsStates();
+    }
+
+    public void state(int step, TFState state) {
+        put(new Event(null, null, step, state.copy()));
+    }
+
+    public void located(int step, int x, int y) {
+        put(new Event(null, null, step, null, x, y));
+    }
+
+    /**
+     * @return first exception thrown by the delegate sink, or null if it
+     *         has received every event
+     **/
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return number of events the delegate sink failed to receive
+     **/
+    public long getFailedEvents() {
+        return failedEvents;
+    }
+
+    /**
+     * Wait until every queued event has been delivered, and close the
+     * delegate sink. Closing it again does nothing.
+     **/
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        put(END);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    private void put(Event event) {
+        if (closed && event != END) {
+            return;
+        }
+        try {
+            while (!queue.offer(event, 100, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver() {
+        try {
+            for (Event event = queue.take(); event != END; event = queue.take()) {
+                try {
+                    deliver(event);
+                } catch (Throwable ex) {
+                    if (failure == null) {
+                        failure = ex;
+                        Logger.getLogger(AsyncEventSink.class.getName()).log(java.util.logging.Level.WARNING,
+                                "Event lost by the delegate sink", ex);
+                    }
+                    failedEvents++;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void deliver(Event event) {
+        if (event.state != null) {
+            delegate.state(event.step, event.state);
+        } else if (event.text != null) {
+            delegate.event(event.level, event.text);
+        } else {
+            delegate.located(event.step, event.x, event.y);
+        }
+    }
+}
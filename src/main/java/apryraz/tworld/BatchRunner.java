@@ -0,0 +1,225 @@
+package apryraz.tworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+*  Runs many independent treasure search scenarios on a pool of threads.
+*  Every scenario gets its own TreasureFinder (and so its own SAT solver,
+*  as SAT4J solvers can not be shared between threads) and its own
+*  TreasureWorldEnv, and runs quietly.
+**/
+public class BatchRunner {
+
+/**
+*  One world, treasure position and sequence of steps to run
+**/
+    public static class Scenario {
+        public final String name;
+        public final int dim, tX, tY, numSteps;
+        public final String stepsFile;
+
+        public Scenario(String name, int dim, int tX, int tY, int numSteps, String stepsFile) {
+            this.name = name;
+            this.dim = dim;
+            this.tX = tX;
+            this.tY = tY;
+            this.numSteps = numSteps;
+            this.stepsFile = stepsFile;
+        }
+    }
+
+/**
+*  Outcome of running one scenario: the final state of knowledge of the
+*  agent, or the error that stopped it, and the time it took
+**/
+    public static class ScenarioResult {
+        public final Scenario scenario;
+        public final TFState finalState;
+        public final Exception error;
+        public final long elapsedNanos;
+
+        ScenarioResult(Scenario scenario, TFState finalState, Exception error, long elapsedNanos) {
+            this.scenario = scenario;
+            this.finalState = finalState;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+
+/**
+*   Number of threads used to run the scenarios
+**/
+    int numThreads;
+/**
+*   Solvers with Gamma reused by the scenarios of the same dimension
+**/
+    final GammaPool gammas;
+
+    /**
+     * Class constructor
+     *
+     * @param numThreads number of scenarios run at the same time
+     **/
+    public BatchRunner(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed: " + numThreads);
+        }
+        this.numThreads = numThreads;
+        gammas = new GammaPool(numThreads);
+    }
+
+    /**
+     * Load a manifest of scenarios. Every line that is not empty nor a
+     * comment (starting with #) has the same five fields as the command
+     * line of TreasureWorld:  dim  tX  tY  numSteps  stepsFile
+     * Relative steps files are relative to the directory of the manifest.
+     *
+     * @param manifestFile name of the manifest file
+     * @return the scenarios, in the order of the file; each one is named
+     *         after its line number
+     * @throws IOException if the file can not be read or a line is malformed
+     **/
+    public static List<Scenario> loadManifest(String manifestFile) throws IOException {
+        List<Scenario> scenarios = new ArrayList<Scenario>();
+        File dir = new File(manifestFile).getAbsoluteFile().getParentFile();
+
+        try (BufferedReader br = new BufferedReader(new FileReader(manifestFile))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\\s+");
+                if (fields.length != 5) {
+                    throw new IOException(manifestFile + ":" + lineNumber + ": expected 5 fields, found " + fields.length);
+                }
+                File steps = new File(fields[4]);
+                if (!steps.isAbsolute()) {
+                    steps = new File(dir, fields[4]);
+                }
+                try {
+                    scenarios.add(new Scenario(manifestFile + ":" + lineNumber,
+                            Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                            Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                            steps.getPath()));
+                } catch (NumberFormatException ex) {
+                    throw new IOException(manifestFile + ":" + lineNumber + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * Run all the scenarios on the pool of threads, and wait for them
+     *
+     * @param scenarios scenarios to run
+     * @return the results, in the same order as scenarios
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     **/
+    public List<ScenarioResult> runAll(List<Scenario> scenarios) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<ScenarioResult>> pending = new ArrayList<Future<ScenarioResult>>(scenarios.size());
+            for (Scenario scenario : scenarios) {
+                pending.add(pool.submit(() -> runScenario(scenario, gammas)));
+            }
+            List<ScenarioResult> results = new ArrayList<ScenarioResult>(scenarios.size());
+            for (Future<ScenarioResult> result : pending) {
+                try {
+                    results.add(result.get());
+                } catch (ExecutionException ex) {
+                    // runScenario catches the exceptions of the scenario itself
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Run one scenario on the calling thread, until its last step or until
+     * the Treasure is located
+     *
+     * @param scenario the scenario to run
+     * @return its result
+     **/
+    public static ScenarioResult runScenario(Scenario scenario) {
+        return runScenario(scenario, null);
+    }
+
+    /**
+     * Run one scenario on the calling thread, with a solver taken from a
+     * pool and given back at the end
+     *
+     * @param scenario the scenario to run
+     * @param gammas pool of solvers, or null to build a new one
+     * @return its result
+     **/
+    public static ScenarioResult runScenario(Scenario scenario, GammaPool gammas) {
+        long start = System.nanoTime();
+        // Closing the agent closes its steps and gives back its solver
+        try (TreasureFinder TAgent = new TreasureFinder(scenario.dim, EventSink.NONE,
+                new SatInferenceBackend(scenario.dim, true, gammas))) {
+            TreasureWorldEnv EnvAgent = new TreasureWorldEnv(scenario.dim, scenario.tX, scenario.tY);
+            EnvAgent.setEventSink(EventSink.NONE);
+            TAgent.setEnvironment(EnvAgent);
+            TAgent.loadListOfSteps(scenario.numSteps, scenario.stepsFile);
+            // Once the Treasure is located, the remaining steps can not
+            // change the final state
+            for (int i = 0; i < scenario.numSteps && !TAgent.isTreasureLocated(); i++) {
+                TAgent.runNextStep();
+            }
+            return new ScenarioResult(scenario, TAgent.getState(), null, System.nanoTime() - start);
+        } catch (IOException | ContradictionException | TimeoutException | RuntimeException ex) {
+            return new ScenarioResult(scenario, null, ex, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Print one line per scenario (name, time, remaining possible
+     * positions or error) and a final summary
+     *
+     * @param results results of runAll
+     * @param wallNanos total time taken by runAll
+     **/
+    public static void printSummary(List<ScenarioResult> results, long wallNanos) {
+        long cpuNanos = 0;
+        int failed = 0;
+        for (ScenarioResult result : results) {
+            cpuNanos += result.elapsedNanos;
+            if (result.succeeded()) {
+                System.out.printf("%s\t%.3f ms\t%d possible positions%n", result.scenario.name,
+                        result.elapsedNanos / 1e6, result.finalState.countPossible());
+            } else {
+                failed++;
+                System.out.printf("%s\t%.3f ms\tFAILED: %s%n", result.scenario.name,
+                        result.elapsedNanos / 1e6, result.error);
+            }
+        }
+        System.out.printf("%d scenarios, %d failed, %.3f ms wall time, %.3f ms scenario time%n",
+                results.size(), failed, wallNanos / 1e6, cpuNanos / 1e6);
+    }
+}
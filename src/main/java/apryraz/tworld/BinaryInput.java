@@ -0,0 +1,84 @@
+package apryraz.tworld;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+*  Reads the big-endian values of the binary step and state files from a
+*  file, in chunks of 64 KB
+**/
+class BinaryInput implements Closeable {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    private boolean closed;
+
+    BinaryInput( Path file ) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+    }
+
+    /**
+     * @return true if all the bytes of the file have been read
+     **/
+    boolean atEnd() throws IOException {
+        return !fill(1);
+    }
+
+    byte readByte() throws IOException {
+        require(1);
+        return buffer.get();
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    private void require( int bytes ) throws IOException {
+        if (!fill(bytes)) {
+            throw new EOFException("Unexpected end of binary file");
+        }
+    }
+
+    /**
+     * Read from the file until the buffer has at least the given bytes
+     *
+     * @return false if the file ends before
+     **/
+    private boolean fill( int bytes ) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package apryraz.tworld;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+*  Writes the big-endian values of the binary step and state files to a
+*  file, in chunks of 64 KB
+**/
+class BinaryOutput implements Closeable {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    private boolean closed;
+
+    BinaryOutput( Path file ) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    void writeByte( int value ) throws IOException {
+        reserve(1);
+        buffer.put((byte) value);
+    }
+
+    void writeInt( int value ) throws IOException {
+        reserve(4);
+        buffer.putInt(value);
+    }
+
+    void writeLong( long value ) throws IOException {
+        reserve(8);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Overwrite an int already written (and flushed) at the given offset
+     *
+     * @param offset position of the int in the file
+     * @param value new value
+     **/
+    void patchInt( long offset, int value ) throws IOException {
+        flush();
+        ByteBuffer patch = ByteBuffer.allocate(4).putInt(value);
+        patch.flip();
+        while (patch.hasRemaining()) {
+            channel.write(patch, offset + patch.position());
+        }
+    }
+
+    private void reserve( int bytes ) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+*  Reads, as they are needed, the steps of a file written by
+*  BinaryStepWriter. The file is closed when the last step wanted has been
+*  read, when the file ends or when an error is found.
+**/
+public class BinaryStepReader implements StepSource {
+
+    private final BinaryInput in;
+    private final int dim, coordinateSize, numSteps;
+/**
+*  Steps still to be read, and steps read
+**/
+    private int remaining, numRead;
+    private int x, y;
+    private boolean closed;
+
+    /**
+     * Open the binary steps file and prepare to read its first maxSteps steps
+     *
+     * @param stepsFile name of the binary steps file
+     * @param maxSteps maximum number of steps to read
+     * @throws IOException if the file can not be opened, or it is not a
+     *                     binary steps file
+     **/
+    public BinaryStepReader( String stepsFile, int maxSteps ) throws IOException {
+        this(Paths.get(stepsFile), maxSteps);
+    }
+
+    /**
+     * Open the binary steps file and prepare to read its first maxSteps steps
+     *
+     * @param stepsFile path of the binary steps file
+     * @param maxSteps maximum number of steps to read
+     * @throws IOException if the file can not be opened, or it is not a
+     *                     binary steps file
+     **/
+    public BinaryStepReader( Path stepsFile, int maxSteps ) throws IOException {
+        in = new BinaryInput(stepsFile);
+        try {
+            if (in.readInt() != BinaryStepWriter.MAGIC) {
+                throw new IOException(stepsFile + " is not a binary steps file");
+            }
+            int version = in.readByte();
+            if (version != BinaryStepWriter.VERSION) {
+                throw new IOException("Unknown version " + version + " of binary steps file " + stepsFile);
+            }
+            coordinateSize = in.readByte();
+            if (coordinateSize != 1 && coordinateSize != 2 && coordinateSize != 4) {
+                throw new IOException("Wrong coordinate size " + coordinateSize + " in " + stepsFile);
+            }
+            dim = in.readInt();
+            numSteps = in.readInt();
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+        remaining = Math.min(maxSteps, numSteps);
+    }
+
+    /**
+     * @return dimension of the world, as written in the header
+     **/
+    public int getDim() {
+        return dim;
+    }
+
+    /**
+     * @return number of steps of the file, as written in the header
+     **/
+    public int getNumSteps() {
+        return numSteps;
+    }
+
+    public boolean next() throws IOException {
+        if (remaining <= 0 || closed) {
+            close();
+            return false;
+        }
+        try {
+            x = readCoordinate();
+            y = readCoordinate();
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+        numRead++;
+        remaining--;
+        return true;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return number of steps read so far
+     **/
+    public int getNumRead() {
+        return numRead;
+    }
+
+    private int readCoordinate() throws IOException {
+        if (coordinateSize == 1) {
+            return in.readByte() & 0xFF;
+        } else if (coordinateSize == 2) {
+            return ((in.readByte() & 0xFF) << 8) | (in.readByte() & 0xFF);
+        } else {
+            return in.readInt();
+        }
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package apryraz.tworld;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+*  Writes a sequence of steps in the binary step format:
+*
+*     "TWSQ"  version (1 byte)  coordinate size (1 byte)  dimension (int)
+*     number of steps (int)  x1 y1 x2 y2 ... xn yn
+*
+*  All the values are big-endian. Each coordinate is unsigned and uses the
+*  coordinate size given in the header, 1, 2 or 4 bytes, the smallest one
+*  that can hold dim + 1, so a step takes from 2 to 8 bytes. As in the text
+*  steps files, a step can be out of the world (the environment does not
+*  move the agent there), as long as its coordinates fit in that size:
+*  any step just beyond an edge always does.
+**/
+public class BinaryStepWriter implements Closeable {
+
+    static final int MAGIC = 0x54575351; // "TWSQ"
+    static final int VERSION = 1;
+    static final int COUNT_OFFSET = 10;
+
+    private final BinaryOutput out;
+    private final int dim, coordinateSize;
+    private final long maxCoordinate;
+    private int numSteps;
+    private boolean closed;
+
+    /**
+     * Create (or overwrite) the file, and write its header
+     *
+     * @param file path of the binary steps file
+     * @param dim dimension of the world of the steps
+     * @throws IOException if the file can not be written
+     **/
+    public BinaryStepWriter( Path file, int dim ) throws IOException {
+        if (dim < 1) {
+            throw new IllegalArgumentException("Wrong dimension of the world: " + dim);
+        }
+        this.dim = dim;
+        coordinateSize = dim < 0xFF ? 1 : dim < 0xFFFF ? 2 : 4;
+        maxCoordinate = coordinateSize == 4 ? Integer.MAX_VALUE : (1L << (8 * coordinateSize)) - 1;
+        out = new BinaryOutput(file);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(coordinateSize);
+        out.writeInt(dim);
+        out.writeInt(0); // number of steps, written again by close()
+    }
+
+    /**
+     * Add a step at the end of the file
+     *
+     * @param x x coordinate of the step, inside the world or not
+     * @param y y coordinate of the step, inside the world or not
+     * @throws IOException if the file can not be written
+     * @throws IllegalArgumentException if a coordinate is negative or does
+     *                                  not fit in the coordinate size
+     **/
+    public void write( int x, int y ) throws IOException {
+        if (x < 0 || x > maxCoordinate || y < 0 || y > maxCoordinate) {
+            throw new IllegalArgumentException("Step " + (numSteps + 1) + " (" + x + "," + y
+                    + ") can not be written for a world of dimension " + dim);
+        }
+        writeCoordinate(x);
+        writeCoordinate(y);
+        numSteps++;
+    }
+
+    /**
+     * Add all the steps of a source at the end of the file, and close the
+     * source
+     *
+     * @param steps the steps to add
+     * @return number of steps added
+     * @throws IOException if the source can not be read or the file written
+     **/
+    public int writeAll( StepSource steps ) throws IOException {
+        int added = 0;
+        try (StepSource source = steps) {
+            while (source.next()) {
+                write(source.getX(), source.getY());
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private void writeCoordinate( int value ) throws IOException {
+        if (coordinateSize == 1) {
+            out.writeByte(value);
+        } else if (coordinateSize == 2) {
+            out.writeByte(value >>> 8);
+            out.writeByte(value);
+        } else {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Write the number of steps in the header, and close the file. Closing
+     * it again does nothing.
+     **/
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.patchInt(COUNT_OFFSET, numSteps);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package apryraz.tworld;
+
+/**
+*  Inference backend that keeps the set of positions compatible with all
+*  the readings as a bitset. Each reading is applied with a region
+*  operation over its neighbourhood, and the inference of a step is a
+*  single word-wise AND with the state of the agent, so it needs no SAT
+*  solver at all.
+**/
+public class BitsetInferenceBackend implements InferenceBackend {
+/**
+*  Positions compatible with all the readings received so far
+**/
+    TFState evidence;
+/**
+*  Positions covered by each reading of the detector
+**/
+    final SensorModel sensor;
+
+    /**
+     * Class constructor
+     *
+     * @param WDim the dimension of the Treasure World
+     **/
+    public BitsetInferenceBackend(int WDim) {
+        evidence = new TFState(WDim);
+        sensor = SensorModel.of(WDim);
+    }
+
+    public void addLastConclusions() {
+        // The evidence is kept up to date as soon as it arrives
+    }
+
+    public void addEvidence(int x, int y, int sensorValue) {
+        if (sensorValue == 1 || sensorValue == 2) {
+            // The Treasure is at one of the positions covered by the reading
+            evidence.retainOnly(sensor.lineal(x, y), sensor.neighbourhood(sensorValue, x, y));
+        } else if (sensorValue == 3) {
+            // The Treasure is not in the 3x3 block around (x,y)
+            evidence.discard(sensor.lineal(x, y), sensor.neighbourhood(3, x, y));
+        }
+    }
+
+    public void restoreKnowledge(TFState state) {
+        evidence.and(state.possible);
+    }
+
+    public void performInference(TFState state) {
+        state.and(evidence.possible);
+    }
+}
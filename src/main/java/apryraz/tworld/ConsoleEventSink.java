@@ -0,0 +1,37 @@
+package apryraz.tworld;
+
+/**
+*  Sink that prints the events on the standard output, with the same
+*  format used by the agent before sinks existed
+**/
+public class ConsoleEventSink implements EventSink {
+    /**
+     * Most verbose level that is printed
+     **/
+    Level maxLevel;
+
+    /**
+     * Class constructor
+     *
+     * @param maxLevel most verbose level that will be printed
+     **/
+    public ConsoleEventSink(Level maxLevel) {
+        this.maxLevel = maxLevel;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(maxLevel) <= 0;
+    }
+
+    public void event(Level level, String text) {
+        System.out.println(text);
+    }
+
+    public boolean wantsStates() {
+        return true;
+    }
+
+    public void state(int step, TFState state) {
+        state.printState();
+    }
+}
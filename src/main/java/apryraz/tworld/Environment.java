@@ -0,0 +1,19 @@
+package apryraz.tworld;
+
+/**
+*  Whatever answers the messages of a TreasureFinder agent: the
+*  TreasureWorldEnv object itself, or a client that sends the messages to
+*  an environment in another process (EnvironmentClient).
+**/
+public interface Environment {
+
+    /**
+     * Process a message received by the TFinder agent, writing the answer
+     * into an existing message object
+     *
+     * @param msg message sent by the Agent
+     * @param ans message object where the answer is written
+     * @return ans, with the answer to return to the agent
+     **/
+    AMessage acceptMessage(AMessage msg, AMessage ans);
+}
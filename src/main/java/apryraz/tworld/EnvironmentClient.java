@@ -0,0 +1,191 @@
+package apryraz.tworld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+*  Environment in another process, reached through an EnvironmentServer.
+*  Messages can be sent without waiting for the answers of the previous
+*  ones (submit, acceptMessages): the server answers them in order, and a
+*  background thread gives each answer to the message that is waiting for
+*  it. The client can be used by several threads at the same time.
+**/
+public class EnvironmentClient implements Environment, Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+/**
+*  Answers still to be received, in the order the messages were sent
+**/
+    private final ConcurrentLinkedQueue<CompletableFuture<AMessage>> pending = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+    private volatile IOException failure;
+
+    /**
+     * Class constructor. Connects to the server.
+     *
+     * @param host host of the server
+     * @param port port of the server
+     * @throws IOException if the connection can not be made
+     **/
+    public EnvironmentClient( String host, int port ) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        reader = new Thread(this::receiveAnswers, "environment-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Send a message, without waiting for its answer
+     *
+     * @param msg the message; it can be reused as soon as this call returns
+     * @return the answer, when it arrives
+     **/
+    public CompletableFuture<AMessage> submit( AMessage msg ) {
+        CompletableFuture<AMessage> answer = new CompletableFuture<>();
+        synchronized (out) {
+            try {
+                send(msg, answer);
+                out.flush();
+            } catch (IOException ex) {
+                abort(ex);
+                pending.remove(answer);
+                answer.completeExceptionally(ex);
+            }
+        }
+        return answer;
+    }
+
+    /**
+     * Send all the messages at once, and wait for all their answers
+     *
+     * @param msgs the messages to send
+     * @param answers message objects where the answers are written, one
+     *                for each message
+     * @throws UncheckedIOException if the messages can not be sent, or the
+     *                              connection fails before all the answers
+     *                              arrive
+     **/
+    public void acceptMessages( AMessage[] msgs, AMessage[] answers ) {
+        List<CompletableFuture<AMessage>> futures = new ArrayList<>(msgs.length);
+        for (int k = 0; k < msgs.length; k++) {
+            futures.add(new CompletableFuture<>());
+        }
+        synchronized (out) {
+            try {
+                for (int k = 0; k < msgs.length; k++) {
+                    send(msgs[k], futures.get(k));
+                }
+                out.flush();
+            } catch (IOException ex) {
+                abort(ex);
+                for (CompletableFuture<AMessage> answer : futures) {
+                    pending.remove(answer);
+                    answer.completeExceptionally(ex);
+                }
+                throw new UncheckedIOException(ex);
+            }
+        }
+        for (int k = 0; k < msgs.length; k++) {
+            copy(await(futures.get(k)), answers[k]);
+        }
+    }
+
+    public AMessage acceptMessage( AMessage msg, AMessage ans ) {
+        return copy(await(submit(msg)), ans);
+    }
+
+    private void send( AMessage msg, CompletableFuture<AMessage> answer ) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        pending.add(answer);
+        if (failure != null && pending.remove(answer)) {
+            // The connection failed while the answer was being queued
+            throw failure;
+        }
+        MessageCodec.write(out, msg);
+    }
+
+    /**
+     * After a failed write the stream is left in an unknown state, so the
+     * connection is closed: the messages waiting for an answer fail, and so
+     * do the next ones
+     **/
+    private void abort( IOException ex ) {
+        if (failure == null) {
+            failure = ex;
+        }
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // the connection is already unusable
+        }
+    }
+
+    private void receiveAnswers() {
+        try {
+            while (true) {
+                AMessage answer = MessageCodec.read(in,
+                        new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE));
+                CompletableFuture<AMessage> waiting = pending.poll();
+                if (waiting == null) {
+                    throw new IOException("Answer received for no message");
+                }
+                waiting.complete(answer);
+            }
+        } catch (IOException ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+            for (CompletableFuture<AMessage> waiting = pending.poll(); waiting != null; waiting = pending.poll()) {
+                waiting.completeExceptionally(ex);
+            }
+        }
+    }
+
+    private static AMessage await( CompletableFuture<AMessage> answer ) {
+        try {
+            return answer.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) ex.getCause());
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private static AMessage copy( AMessage from, AMessage to ) {
+        return to.set(from.getKind(), from.getX(), from.getY(), from.getValue());
+    }
+
+    /**
+     * Close the connection. The messages still waiting for an answer fail.
+     **/
+    public void close() throws IOException {
+        socket.close();
+        try {
+            reader.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package apryraz.tworld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+*  Serves an Environment to agents in other processes, through TCP
+*  connections that carry the frames of MessageCodec. Each connection is
+*  served by its own thread, which answers the frames in the order they
+*  arrive and sends the answers in batches: it only flushes when it has
+*  answered all the frames received so far, so clients can keep many
+*  messages in flight.
+**/
+public class EnvironmentServer implements Closeable {
+
+    private final Environment environment;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Class constructor. Opens the port and starts accepting connections.
+     *
+     * @param environment the environment to serve; it must accept messages
+     *                    from several threads when there are several clients
+     * @param address local address to listen on (for example the loopback)
+     * @param port port to listen on, or 0 for any free port
+     * @throws IOException if the port can not be opened
+     **/
+    public EnvironmentServer( Environment environment, InetAddress address, int port ) throws IOException {
+        this.environment = environment;
+        serverSocket = new ServerSocket(port, 50, address);
+        connections = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "environment-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        connections.execute(this::acceptConnections);
+    }
+
+    /**
+     * @return the port where the server listens
+     **/
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (SocketException ex) {
+                // The server socket has been closed
+            } catch (IOException ex) {
+                Logger.getLogger(EnvironmentServer.class.getName()).log(Level.WARNING, null, ex);
+            }
+        }
+    }
+
+    private void serve( Socket socket ) {
+        AMessage request = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+        AMessage answer = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+        try (Socket connection = socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()))) {
+            while (true) {
+                MessageCodec.read(in, request);
+                MessageCodec.write(out, environment.acceptMessage(request, answer));
+                if (in.available() < MessageCodec.FRAME_SIZE) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException | SocketException ex) {
+            // The client has closed the connection
+        } catch (IOException ex) {
+            Logger.getLogger(EnvironmentServer.class.getName()).log(Level.WARNING, null, ex);
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * Stop accepting connections, and close the open ones
+     **/
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+    }
+}
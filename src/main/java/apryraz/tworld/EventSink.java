@@ -0,0 +1,83 @@
+package apryraz.tworld;
+
+/**
+*  Destination of the events produced by the finder agent and the
+*  environment while they run: trace lines and the state of knowledge
+*  after each step. Callers must ask isEnabled (or wantsStates) before
+*  building an event, so that a disabled level costs no formatting work.
+**/
+public interface EventSink {
+
+/**
+*  Verbosity of the events: INFO for the start and end of the steps,
+*  DEBUG for every message, movement and evidence
+**/
+    enum Level { INFO, DEBUG }
+
+/**
+*  Sink that discards everything, for high throughput runs
+**/
+    EventSink NONE = new EventSink() {
+        public boolean isEnabled(Level level) {
+            return false;
+        }
+
+        public void event(Level level, String text) {
+        }
+
+        public boolean wantsStates() {
+            return false;
+        }
+
+        public void state(int step, TFState state) {
+        }
+    };
+
+    /**
+     * @param level level of an event
+     * @return true if events of that level must be sent to this sink
+     **/
+    boolean isEnabled(Level level);
+
+    /**
+     * Receive a trace line
+     *
+     * @param level level of the event
+     * @param text the text of the event
+     **/
+    void event(Level level, String text);
+
+    /**
+     * @return true if the state of knowledge must be sent to this sink
+     *         after each step
+     **/
+    boolean wantsStates();
+
+    /**
+     * Receive the state of knowledge of the agent. The state object keeps
+     * changing after this call returns, so sinks that use it later must
+     * make a copy.
+     *
+     * @param step number of steps performed (0 for the initial state)
+     * @param state the state of knowledge of the agent
+     **/
+    void state(int step, TFState state);
+
+    /**
+     * Receive the position of the Treasure, once the agent has discarded
+     * all the other positions. It is sent only once per run, and by default
+     * it is ignored.
+     *
+     * @param step number of steps performed when the Treasure was located
+     * @param x x coordinate of the Treasure
+     * @param y y coordinate of the Treasure
+     **/
+    default void located(int step, int x, int y) {
+    }
+
+    /**
+     * Write any pending event, and release the resources of the sink
+     **/
+    default void close() {
+    }
+}
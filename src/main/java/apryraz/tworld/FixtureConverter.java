@@ -0,0 +1,117 @@
+package apryraz.tworld;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+*  Converts the text files of steps (steps*.txt) and of states
+*  (states*.txt) to the binary formats of BinaryStepWriter and
+*  StateSnapshotWriter.
+**/
+public class FixtureConverter {
+
+    /**
+     * Convert all the steps of a text steps file
+     *
+     * @param dim dimension of the world of the steps
+     * @param textFile steps file: x1,y1 x2,y2 ...  xn,yn
+     * @param binaryFile binary steps file to write
+     * @return number of steps converted
+     * @throws IOException if a file can not be read or written, or a step
+     *                     (named in the message) can not be written in the
+     *                     binary format
+     **/
+    public static int convertSteps( int dim, Path textFile, Path binaryFile ) throws IOException {
+        try (BinaryStepWriter out = new BinaryStepWriter(binaryFile, dim)) {
+            return out.writeAll(new StepFileReader(textFile, Integer.MAX_VALUE));
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(textFile + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Convert all the states of a text states file. The states get the
+     * step indexes 1, 2, ... in the order of the file.
+     *
+     * @param dim dimension of the world of the states
+     * @param textFile states file: one state after another, each one
+     *                 as printed by TFState, separated by a blank line
+     * @param binaryFile binary states file to write
+     * @return number of states converted
+     * @throws IOException if a file can not be read or written, or a state
+     *                     is malformed
+     **/
+    public static int convertStates( int dim, Path textFile, Path binaryFile ) throws IOException {
+        int numStates = 0;
+        TFState state = new TFState(dim);
+        try (BufferedReader br = Files.newBufferedReader(textFile, StandardCharsets.US_ASCII);
+             StateSnapshotWriter out = new StateSnapshotWriter(binaryFile, dim)) {
+            while (readTextState(br, state)) {
+                numStates++;
+                out.write(numStates, state);
+            }
+        }
+        return numStates;
+    }
+
+    /**
+     * Read the next state of a text states file, skipping the blank lines
+     * before it. The first row is the one of i = dim, and the last one the
+     * row of i = 1.
+     *
+     * @param br the open states file
+     * @param state where the state is stored
+     * @return true if a state was read, false at the end of the file
+     * @throws IOException if the file can not be read, or the state is malformed
+     **/
+    public static boolean readTextState( BufferedReader br, TFState state ) throws IOException {
+        String row = br.readLine();
+        while (row != null && row.trim().isEmpty()) {
+            row = br.readLine();
+        }
+        if (row == null) {
+            return false;
+        }
+        for (int i = state.wDim; i >= 1; i--) {
+            if (row == null) {
+                throw new IOException("States file ended in the middle of a state");
+            }
+            String[] rowvalues = row.trim().split(" +");
+            if (rowvalues.length != state.wDim) {
+                throw new IOException("Row with " + rowvalues.length + " positions in a world of dimension "
+                        + state.wDim + ": " + row);
+            }
+            for (int j = 1; j <= state.wDim; j++) {
+                state.set(i, j, rowvalues[j - 1]);
+            }
+            row = i > 1 ? br.readLine() : null;
+        }
+        return true;
+    }
+
+    /**
+    *  Convert a file from the command line:
+    *  arg[0] = steps or states
+    *  arg[1] = dimension of the world
+    *  arg[2] = text file to convert
+    *  arg[3] = binary file to write
+    **/
+    public static void main( String[] args ) throws IOException {
+        if (args.length != 4 || !(args[0].equals("steps") || args[0].equals("states"))) {
+            System.out.println("Usage: FixtureConverter steps|states <dim> <text file> <binary file>");
+            return;
+        }
+        int dim = Integer.parseInt(args[1]);
+        Path textFile = Paths.get(args[2]);
+        Path binaryFile = Paths.get(args[3]);
+        if (args[0].equals("steps")) {
+            System.out.println(convertSteps(dim, textFile, binaryFile) + " steps converted");
+        } else {
+            System.out.println(convertStates(dim, textFile, binaryFile) + " states converted");
+        }
+    }
+}
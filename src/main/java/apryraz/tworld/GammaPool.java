@@ -0,0 +1,83 @@
+package apryraz.tworld;
+
+import org.sat4j.specs.ISolver;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+*  Solvers that only contain Gamma, the initial formula of the agent, kept
+*  by world dimension so that many runs over worlds of the same size do
+*  not have to build it again. A SatInferenceBackend made with a pool
+*  takes its solver from the pool, if there is one of its dimension, and
+*  gives it back with release(), after removing every clause it added.
+*  The pool can be shared by backends on different threads.
+**/
+public class GammaPool {
+
+    private final int maxIdle;
+    private final ConcurrentHashMap<Integer, Queue<ISolver>> idle = new ConcurrentHashMap<>();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder reuses = new LongAdder();
+
+    /**
+     * Class constructor
+     *
+     * @param maxIdle maximum number of solvers kept for each dimension, the
+     *                other ones given back are left to the garbage collector
+     **/
+    public GammaPool(int maxIdle) {
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("Wrong number of solvers: " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Take a solver with the Gamma of a world of dimension dim
+     *
+     * @param dim dimension of the world
+     * @return the solver, or null if the backend has to build a new one
+     **/
+    ISolver acquire(int dim) {
+        Queue<ISolver> solvers = idle.get(dim);
+        ISolver gamma = solvers == null ? null : solvers.poll();
+        if (gamma == null) {
+            builds.increment();
+        } else {
+            reuses.increment();
+        }
+        return gamma;
+    }
+
+    /**
+     * Give back a solver that contains again only the Gamma of a world of
+     * dimension dim
+     *
+     * @param dim dimension of the world
+     * @param gamma the solver
+     **/
+    void release(int dim, ISolver gamma) {
+        Queue<ISolver> solvers = idle.computeIfAbsent(dim, d -> new ConcurrentLinkedQueue<ISolver>());
+        if (solvers.size() < maxIdle) {
+            solvers.offer(gamma);
+        }
+    }
+
+    /**
+     * @return number of solvers that had to be built, as there was none
+     *         in the pool
+     **/
+    public long getBuildCount() {
+        return builds.sum();
+    }
+
+    /**
+     * @return number of solvers taken from the pool
+     **/
+    public long getReuseCount() {
+        return reuses.sum();
+    }
+}
@@ -0,0 +1,79 @@
+package apryraz.tworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+*  The reasoning part of the TreasureFinder agent: it receives the readings
+*  of the detector and decides, after each step, which positions of the
+*  world can not contain the Treasure. The agent calls, at every step:
+*  addLastConclusions(), then addEvidence() for the reading obtained, and
+*  then performInference().
+**/
+public interface InferenceBackend {
+
+    /**
+     * Add to the knowledge of the backend the conclusions obtained in the
+     * previous step, before new evidence arrives
+     *
+     * @throws ContradictionException if the conclusions contradict the knowledge
+     **/
+    void addLastConclusions() throws ContradictionException;
+
+    /**
+     * Add the reading of the detector at (x,y)
+     *
+     * @param x x coordinate of the position where the detector was used
+     * @param y y coordinate of the position where the detector was used
+     * @param sensorValue reading of the detector: 1, 2 or 3
+     * @throws ContradictionException if the reading contradicts the knowledge
+     **/
+    void addEvidence(int x, int y, int sensorValue) throws ContradictionException;
+
+    /**
+     * Discard in state (set to "X") every position that, with the evidence
+     * received so far, can not contain the Treasure
+     *
+     * @param state the state of knowledge of the agent
+     * @throws TimeoutException if the backend gives up before finishing
+     **/
+    void performInference(TFState state) throws TimeoutException;
+
+    /**
+     * Add to the knowledge of the backend that the Treasure can only be at
+     * the positions possible in state, for example to resume a run from a
+     * checkpoint without receiving again all its evidence
+     *
+     * @param state a state of knowledge for a world of the same dimension
+     * @throws ContradictionException if state contradicts the knowledge
+     **/
+    void restoreKnowledge(TFState state) throws ContradictionException;
+
+    /**
+     * @return number of questions asked to the solver so far (always 0 for
+     *         a backend without solver)
+     **/
+    default long getSolverCalls() {
+        return 0;
+    }
+
+    /**
+     * @return statistics of the solver so far, by the names given by SAT4J
+     *         (conflicts, propagations, decisions...), or an empty map for
+     *         a backend without solver
+     **/
+    default Map<String, Number> getSolverStats() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Give back the resources of the backend (solvers, threads) once the
+     * run is over. The backend can not be used after this call. By default,
+     * there are none.
+     **/
+    default void release() {
+    }
+}
@@ -0,0 +1,161 @@
+package apryraz.tworld;
+
+/**
+*  Source of steps that, instead of following a fixed list, chooses each
+*  step from the current knowledge of the agent: it moves to the position
+*  whose detector reading is expected to leave the fewest possible
+*  positions for the Treasure.
+*
+*  Sensing at (x,y) splits the n positions still possible in three groups:
+*  the a ones that would give reading 1 (the cross around (x,y)), the b ones
+*  that would give reading 2 (its diagonals) and the other n - a - b, that
+*  would give reading 3. As the Treasure can be at any of them, the expected
+*  number of positions left after the reading is (a^2 + b^2 + (n-a-b)^2) / n,
+*  and the planner chooses the reachable position that minimizes it. Only
+*  the positions next to a possible one (a + b > 0) give any information.
+**/
+public class InformationGainPlanner implements StepSource {
+
+    private final TreasureFinder agent;
+    private final int maxMove;
+    private int x, y;
+
+    /**
+     * Class constructor
+     *
+     * @param agent the agent whose steps are planned
+     * @param maxMove maximum number of positions the agent can move in each
+     *                coordinate at each step (0 for no limit). When no
+     *                position within reach gives information, the agent
+     *                moves towards the best position of the world.
+     **/
+    public InformationGainPlanner( TreasureFinder agent, int maxMove ) {
+        if (maxMove < 0) {
+            throw new IllegalArgumentException("Wrong maximum movement: " + maxMove);
+        }
+        this.agent = agent;
+        this.maxMove = maxMove;
+    }
+
+    /**
+     * Choose the next step, from the state of knowledge of the agent after
+     * its last step. It never ends: once the Treasure is located, the agent
+     * stays where it is.
+     *
+     * @return true
+     **/
+    public boolean next() {
+        TFState state = agent.getState();
+        int dim = state.wDim;
+        int fromX = agent.agentX, fromY = agent.agentY;
+        boolean anywhere = maxMove == 0 || fromX < 1 || fromY < 1;
+
+        if (state.countPossible() <= 1) {
+            x = anywhere ? Math.max(fromX, 1) : fromX;
+            y = anywhere ? Math.max(fromY, 1) : fromY;
+            return true;
+        }
+
+        int minX = 1, maxX = dim, minY = 1, maxY = dim;
+        if (!anywhere) {
+            minX = Math.max(1, fromX - maxMove);
+            maxX = Math.min(dim, fromX + maxMove);
+            minY = Math.max(1, fromY - maxMove);
+            maxY = Math.min(dim, fromY + maxMove);
+        }
+        SensorModel sensor = SensorModel.of(dim);
+        long[] best = bestTarget(state, sensor, minX, maxX, minY, maxY, fromX, fromY);
+        if (best != null) {
+            x = (int) best[1];
+            y = (int) best[2];
+            return true;
+        }
+        // Nothing to learn within reach: go towards the best position
+        best = anywhere ? null : bestTarget(state, sensor, 1, dim, 1, dim, fromX, fromY);
+        if (best == null) {
+            x = Math.max(fromX, 1);
+            y = Math.max(fromY, 1);
+        } else {
+            x = fromX + Math.max(-maxMove, Math.min(maxMove, (int) best[1] - fromX));
+            y = fromY + Math.max(-maxMove, Math.min(maxMove, (int) best[2] - fromY));
+        }
+        return true;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Find the position of the rectangle where sensing leaves the fewest
+     * expected possible positions, breaking ties by the distance to
+     * (fromX,fromY) and then by the coordinates
+     *
+     * @return {score, x, y} of the best position, or null if no position of
+     *         the rectangle gives any information
+     **/
+    private static long[] bestTarget( TFState state, SensorModel sensor, int minX, int maxX, int minY, int maxY,
+                                      int fromX, int fromY ) {
+        // Only the positions next to the possible ones can give information
+        int dim = state.wDim;
+        int lowX = dim, highX = 1, lowY = dim, highY = 1;
+        long n = 0;
+        for (int w = 0; w < state.possible.length; w++) {
+            for (long word = state.possible[w]; word != 0; word &= word - 1) {
+                int lineal = (w << 6) + Long.numberOfTrailingZeros(word);
+                int i = lineal / dim + 1;
+                int j = lineal % dim + 1;
+                lowX = Math.min(lowX, i);
+                highX = Math.max(highX, i);
+                lowY = Math.min(lowY, j);
+                highY = Math.max(highY, j);
+                n++;
+            }
+        }
+        minX = Math.max(minX, lowX - 1);
+        maxX = Math.min(maxX, highX + 1);
+        minY = Math.max(minY, lowY - 1);
+        maxY = Math.min(maxY, highY + 1);
+
+        long bestScore = Long.MAX_VALUE;
+        int bestDistance = Integer.MAX_VALUE, bestX = 0, bestY = 0;
+        for (int i = minX; i <= maxX; i++) {
+            for (int j = minY; j <= maxY; j++) {
+                long a = countPossible(state, sensor, 1, i, j);
+                long b = countPossible(state, sensor, 2, i, j);
+                if (a + b == 0 || a + b == n && (a == 0 || b == 0)) {
+                    continue;
+                }
+                long rest = n - a - b;
+                long score = a * a + b * b + rest * rest;
+                int distance = Math.max(Math.abs(i - fromX), Math.abs(j - fromY));
+                if (score < bestScore || score == bestScore && distance < bestDistance) {
+                    bestScore = score;
+                    bestDistance = distance;
+                    bestX = i;
+                    bestY = j;
+                }
+            }
+        }
+        return bestScore == Long.MAX_VALUE ? null : new long[]{bestScore, bestX, bestY};
+    }
+
+    /**
+     * @return number of possible positions that would give the reading
+     *         when the detector is used at (x,y)
+     **/
+    private static int countPossible( TFState state, SensorModel sensor, int reading, int x, int y ) {
+        int lineal = sensor.lineal(x, y);
+        int count = 0;
+        for (int offset : sensor.neighbourhood(reading, x, y)) {
+            if (state.isPossible(lineal + offset)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
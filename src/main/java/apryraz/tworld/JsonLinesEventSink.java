@@ -0,0 +1,103 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+*  Sink that writes every event as one JSON object per line:
+*  {"level":"DEBUG","text":"..."} for the trace lines and
+*  {"step":1,"dim":6,"rows":["? ? X ...", ...]} for the states, with the
+*  rows from the highest x coordinate down to 1, as printState shows them,
+*  and {"step":4,"located":[3,3]} when the Treasure is located
+**/
+public class JsonLinesEventSink implements EventSink {
+    Writer out;
+    Level maxLevel;
+    boolean withStates;
+
+    /**
+     * Class constructor
+     *
+     * @param out where the lines are written (it should be buffered)
+     * @param maxLevel most verbose level that will be written
+     * @param withStates whether the states after each step are written
+     **/
+    public JsonLinesEventSink(Writer out, Level maxLevel, boolean withStates) {
+        this.out = out;
+        this.maxLevel = maxLevel;
+        this.withStates = withStates;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(maxLevel) <= 0;
+    }
+
+    public synchronized void event(Level level, String text) {
+        StringBuilder line = new StringBuilder(text.length() + 32);
+        line.append("{\"level\":\"").append(level).append("\",\"text\":");
+        appendString(line, text);
+        line.append("}\n");
+        write(line);
+    }
+
+    public boolean wantsStates() {
+        return withStates;
+    }
+
+    public synchronized void state(int step, TFState state) {
+        StringBuilder line = new StringBuilder(2 * state.wDim * state.wDim + 64);
+        line.append("{\"step\":").append(step).append(",\"dim\":").append(state.wDim).append(",\"rows\":[");
+        for (int i = state.wDim; i >= 1; i--) {
+            line.append('"');
+            for (int j = 1; j <= state.wDim; j++) {
+                if (j > 1) {
+                    line.append(' ');
+                }
+                line.append(state.isPossible(i, j) ? '?' : 'X');
+            }
+            line.append(i > 1 ? "\"," : "\"");
+        }
+        line.append("]}\n");
+        write(line);
+    }
+
+    public synchronized void located(int step, int x, int y) {
+        write("{\"step\":" + step + ",\"located\":[" + x + "," + y + "]}\n");
+    }
+
+    /**
+     * Flush the pending lines. The writer belongs to the caller, so it is
+     * not closed.
+     **/
+    public synchronized void close() {
+        try {
+            out.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void write(CharSequence line) {
+        try {
+            out.append(line);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static void appendString(StringBuilder line, String text) {
+        line.append('"');
+        for (int k = 0; k < text.length(); k++) {
+            char c = text.charAt(k);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,78 @@
+package apryraz.tworld;
+
+/**
+*  Histogram of latencies in nanoseconds, with one bucket per power of
+*  two, so recording a value is a few integer operations and the memory
+*  used does not depend on the number of values. Percentiles are given as
+*  the upper bound of their bucket, so they are at most twice the real
+*  value. It is not thread-safe.
+**/
+public class LatencyHistogram {
+
+    private final long[] buckets = new long[64];
+    private long count, total, max;
+
+    /**
+     * Add a latency
+     *
+     * @param nanos the latency, in nanoseconds
+     **/
+    public void record( long nanos ) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets[64 - Long.numberOfLeadingZeros(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return mean of the latencies, or 0 if there are none
+     **/
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @param fraction fraction of the latencies, from 0 to 1 (0.99 for the
+     *                 99th percentile)
+     * @return upper bound of the latencies below that fraction, or 0 if
+     *         there are none
+     **/
+    public long getPercentile( double fraction ) {
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen += buckets[b];
+            if (seen >= rank && seen > 0) {
+                return b == 0 ? 0 : Math.min(max, (1L << b) - 1);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return a copy of this histogram
+     **/
+    public LatencyHistogram copy() {
+        LatencyHistogram other = new LatencyHistogram();
+        System.arraycopy(buckets, 0, other.buckets, 0, buckets.length);
+        other.count = count;
+        other.total = total;
+        other.max = max;
+        return other;
+    }
+}
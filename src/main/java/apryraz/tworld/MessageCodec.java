@@ -0,0 +1,45 @@
+package apryraz.tworld;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+*  Binary form of the messages exchanged with a remote environment. Each
+*  message is a frame of FRAME_SIZE bytes: the type of message (one byte,
+*  the position of its AMessage.Kind) and its three parameters (big-endian
+*  ints, AMessage.NONE when not used). As every frame has the same size,
+*  many of them can be sent one after another without waiting for the
+*  answers, and the answers come back in the same order.
+**/
+final class MessageCodec {
+
+    static final int FRAME_SIZE = 13;
+
+    private static final AMessage.Kind[] KINDS = AMessage.Kind.values();
+
+    private MessageCodec() {
+    }
+
+    static void write( DataOutput out, AMessage msg ) throws IOException {
+        out.writeByte(msg.getKind().ordinal());
+        out.writeInt(msg.getX());
+        out.writeInt(msg.getY());
+        out.writeInt(msg.getValue());
+    }
+
+    /**
+     * Read a frame into msg
+     *
+     * @return msg
+     * @throws java.io.EOFException if the stream ends before the frame
+     * @throws IOException if the frame has an unknown type of message
+     **/
+    static AMessage read( DataInput in, AMessage msg ) throws IOException {
+        int kind = in.readUnsignedByte();
+        if (kind >= KINDS.length) {
+            throw new IOException("Unknown type of message in frame: " + kind);
+        }
+        return msg.set(KINDS[kind], in.readInt(), in.readInt(), in.readInt());
+    }
+}
@@ -0,0 +1,83 @@
+package apryraz.tworld;
+
+/**
+*  Measures of all the steps of an agent up to some moment, taken with
+*  StepMetrics.snapshot(). It does not change after it is made.
+**/
+public class MetricsSnapshot {
+
+    private final LatencyHistogram steps;
+    private final LatencyHistogram[] phases;
+    private final long solverCalls;
+    private final long[] solverStats;
+
+    MetricsSnapshot( LatencyHistogram steps, LatencyHistogram[] phases, long solverCalls, long[] solverStats ) {
+        this.steps = steps;
+        this.phases = phases;
+        this.solverCalls = solverCalls;
+        this.solverStats = solverStats;
+    }
+
+    /**
+     * @return number of steps measured
+     **/
+    public long getNumSteps() {
+        return steps.getCount();
+    }
+
+    /**
+     * @return latencies of the whole steps
+     **/
+    public LatencyHistogram getStepLatencies() {
+        return steps.copy();
+    }
+
+    /**
+     * @param phase a phase of the steps
+     * @return latencies of that phase
+     **/
+    public LatencyHistogram getPhaseLatencies( StepMetrics.Phase phase ) {
+        return phases[phase.ordinal()].copy();
+    }
+
+    /**
+     * @return questions asked to the solver in all the steps
+     **/
+    public long getSolverCalls() {
+        return solverCalls;
+    }
+
+    public long getConflicts() {
+        return solverStats[0];
+    }
+
+    public long getPropagations() {
+        return solverStats[1];
+    }
+
+    public long getDecisions() {
+        return solverStats[2];
+    }
+
+    /**
+     * @return one line per phase, and one for the whole steps, with the
+     *         number of steps, mean, 50th, 99th percentile and maximum (in
+     *         microseconds), and the work of the solver
+     **/
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (StepMetrics.Phase phase : StepMetrics.Phase.values()) {
+            appendLine(text, phase.name(), phases[phase.ordinal()]);
+        }
+        appendLine(text, "STEP", steps);
+        text.append(String.format("SOLVER\tcalls=%d conflicts=%d propagations=%d decisions=%d%n",
+                solverCalls, getConflicts(), getPropagations(), getDecisions()));
+        return text.toString();
+    }
+
+    private static void appendLine( StringBuilder text, String name, LatencyHistogram latencies ) {
+        text.append(String.format("%s\tn=%d mean=%.1f p50=%.1f p99=%.1f max=%.1f us%n", name,
+                latencies.getCount(), latencies.getMean() / 1e3, latencies.getPercentile(0.5) / 1e3,
+                latencies.getPercentile(0.99) / 1e3, latencies.getMax() / 1e3));
+    }
+}
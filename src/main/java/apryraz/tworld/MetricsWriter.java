@@ -0,0 +1,89 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+*  Listener of StepMetrics that writes one line per step, in CSV (with a
+*  header line) or as JSON objects:
+*
+*     step,CONCLUSIONS,MOVE,SENSE,EVIDENCE,INFERENCE,EVENTS,total,solverCalls,conflicts,propagations,decisions
+*     {"step":1,"CONCLUSIONS":1200,...,"total":350000,"solverCalls":7,"conflicts":0,...}
+*
+*  with all the times in nanoseconds. The phases a step skipped are left
+*  empty in CSV and left out in JSON.
+**/
+public class MetricsWriter implements StepMetrics.Listener {
+
+    public enum Format { CSV, JSON }
+
+    private final Writer out;
+    private final Format format;
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * Class constructor. For CSV, it writes the header line.
+     *
+     * @param out where the lines are written (it should be buffered, and
+     *            it belongs to the caller, that must flush it)
+     * @param format format of the lines
+     **/
+    public MetricsWriter( Writer out, Format format ) {
+        this.out = out;
+        this.format = format;
+        if (format == Format.CSV) {
+            line.append("step");
+            for (StepMetrics.Phase phase : StepMetrics.Phase.values()) {
+                line.append(',').append(phase.name());
+            }
+            line.append(",total,solverCalls");
+            for (String stat : StepMetrics.SOLVER_STATS) {
+                line.append(',').append(stat);
+            }
+            write();
+        }
+    }
+
+    public void step( StepMetrics.StepRecord record ) {
+        field("step", record.getStep(), true);
+        for (StepMetrics.Phase phase : StepMetrics.Phase.values()) {
+            if (record.hasPhase(phase)) {
+                field(phase.name(), record.getPhaseNanos(phase), false);
+            } else if (format == Format.CSV) {
+                line.append(',');
+            }
+        }
+        field("total", record.getTotalNanos(), false);
+        field("solverCalls", record.getSolverCalls(), false);
+        for (int s = 0; s < StepMetrics.SOLVER_STATS.length; s++) {
+            field(StepMetrics.SOLVER_STATS[s], record.solverStats[s], false);
+        }
+        if (format == Format.JSON) {
+            line.append('}');
+        }
+        write();
+    }
+
+    private void field( String name, long value, boolean first ) {
+        if (format == Format.CSV) {
+            if (!first) {
+                line.append(',');
+            }
+        } else {
+            line.append(first ? "{\"" : ",\"").append(name).append("\":");
+        }
+        line.append(value);
+    }
+
+    private void write() {
+        line.append('\n');
+        try {
+            out.append(line);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            line.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package apryraz.tworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+*  Several TreasureFinder agents searching at the same time in one world,
+*  each one on its own thread and with its own steps. Their readings go to
+*  one SharedKnowledge object, so after each step every agent knows what
+*  all the readings received so far imply, and all of them stop as soon as
+*  the Treasure is located.
+**/
+public class MultiAgentSearch {
+
+    SharedKnowledge knowledge;
+    TreasureFinder[] agents;
+
+    /**
+     * Class constructor. The agents are quiet, and they must be given their
+     * steps (with getAgent) before calling run.
+     *
+     * @param dim dimension of the world
+     * @param environment the environment of the world, shared by all the
+     *                    agents, so it must accept messages from several
+     *                    threads at the same time
+     * @param numAgents number of agents
+     **/
+    public MultiAgentSearch( int dim, Environment environment, int numAgents ) {
+        knowledge = new SharedKnowledge(dim);
+        agents = new TreasureFinder[numAgents];
+        for (int k = 0; k < numAgents; k++) {
+            agents[k] = new TreasureFinder(dim, EventSink.NONE, new SharedInferenceBackend(knowledge));
+            agents[k].setEnvironment(environment);
+        }
+    }
+
+    /**
+     * @param k index of the agent, from 0
+     * @return the agent
+     **/
+    public TreasureFinder getAgent( int k ) {
+        return agents[k];
+    }
+
+    /**
+     * @return the knowledge shared by the agents
+     **/
+    public SharedKnowledge getKnowledge() {
+        return knowledge;
+    }
+
+    /**
+     * Run all the agents at the same time, each one until it has performed
+     * numSteps steps, it has no more steps or the Treasure has been located
+     *
+     * @param numSteps maximum number of steps of each agent
+     * @return total number of steps performed by all the agents
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     **/
+    public int run( int numSteps ) throws InterruptedException,
+            IOException, ContradictionException, TimeoutException {
+        ExecutorService pool = Executors.newFixedThreadPool(agents.length);
+        try {
+            List<Future<Integer>> pending = new ArrayList<Future<Integer>>(agents.length);
+            for (TreasureFinder agent : agents) {
+                pending.add(pool.submit(() -> {
+                    int steps = 0;
+                    while (steps < numSteps && agent.idNextStep < agent.numMovements
+                            && knowledge.countPossible() > 1) {
+                        agent.runNextStep();
+                        steps++;
+                    }
+                    return steps;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> steps : pending) {
+                try {
+                    total += steps.get();
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof ContradictionException) {
+                        throw (ContradictionException) cause;
+                    } else if (cause instanceof TimeoutException) {
+                        throw (TimeoutException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
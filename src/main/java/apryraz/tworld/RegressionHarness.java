@@ -0,0 +1,339 @@
+package apryraz.tworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+*  Checks fixture sets (a world, a sequence of steps and the states the
+*  agent must have after each step) on a pool of threads. The expected
+*  states are read one at a time, as the agent performs its steps, and a
+*  fixture stops at the first step whose state is not the expected one,
+*  with a report of the positions that differ.
+**/
+public class RegressionHarness {
+
+/**
+*  One fixture set to check
+**/
+    public static class Fixture {
+        public final String name;
+        public final int dim, tX, tY, numSteps;
+        public final String stepsFile, statesFile;
+
+        public Fixture(String name, int dim, int tX, int tY, int numSteps, String stepsFile, String statesFile) {
+            this.name = name;
+            this.dim = dim;
+            this.tX = tX;
+            this.tY = tY;
+            this.numSteps = numSteps;
+            this.stepsFile = stepsFile;
+            this.statesFile = statesFile;
+        }
+    }
+
+/**
+*  Outcome of checking one fixture: the number of steps whose state was
+*  the expected one and, if it failed, the step where it failed with the
+*  differences, or the error that stopped it
+**/
+    public static class FixtureResult {
+        public final Fixture fixture;
+        public final int stepsChecked;
+        public final int failedStep;
+        public final String diff;
+        public final Exception error;
+        public final long elapsedNanos;
+
+        FixtureResult(Fixture fixture, int stepsChecked, int failedStep, String diff, Exception error,
+                      long elapsedNanos) {
+            this.fixture = fixture;
+            this.stepsChecked = stepsChecked;
+            this.failedStep = failedStep;
+            this.diff = diff;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public boolean passed() {
+            return failedStep == 0 && error == null;
+        }
+    }
+
+/**
+*  Lines of the manifests in the format of infotests.txt:
+*  test1 (states1.txt steps1.txt  ):  6x6 world, treasure at 3,3,  5 steps
+**/
+    private static final Pattern INFO_LINE = Pattern.compile(
+            "\\s*(\\S+)\\s*\\(\\s*(\\S+)\\s+(\\S+)\\s*\\)\\s*:\\s*(\\d+)x\\d+ world,\\s*treasure at\\s*(\\d+),(\\d+),\\s*(\\d+) steps.*");
+
+    private final int numThreads;
+    private final IntFunction<InferenceBackend> backends;
+
+    /**
+     * Class constructor, for agents with the default inference backend,
+     * that reuse the solvers of the fixtures of the same dimension
+     *
+     * @param numThreads number of fixtures checked at the same time
+     **/
+    public RegressionHarness(int numThreads) {
+        this(numThreads, new GammaPool(numThreads));
+    }
+
+    /**
+     * Class constructor, for agents with the default inference backend
+     *
+     * @param numThreads number of fixtures checked at the same time
+     * @param gammas pool of the solvers of the agents
+     **/
+    public RegressionHarness(int numThreads, GammaPool gammas) {
+        this(numThreads, dim -> new SatInferenceBackend(dim, true, gammas));
+    }
+
+    /**
+     * Class constructor
+     *
+     * @param numThreads number of fixtures checked at the same time
+     * @param backends makes the inference backend of the agent of each
+     *                 fixture, given the dimension of its world; it is
+     *                 released when the fixture has been checked
+     **/
+    public RegressionHarness(int numThreads, IntFunction<InferenceBackend> backends) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Wrong number of threads: " + numThreads);
+        }
+        this.numThreads = numThreads;
+        this.backends = backends;
+    }
+
+    /**
+     * Read the fixtures of a manifest. Each line is either in the format of
+     * infotests.txt or has six fields:
+     *
+     *    dim tX tY numSteps stepsFile statesFile
+     *
+     * Empty lines, lines starting with #, and other lines of text are
+     * ignored. Relative files are taken from the directory of the manifest.
+     *
+     * @param manifestFile name of the manifest
+     * @return the fixtures, in the order of the manifest
+     * @throws IOException if the manifest can not be read or a line of six
+     *                     fields is malformed
+     **/
+    public static List<Fixture> loadManifest(String manifestFile) throws IOException {
+        List<Fixture> fixtures = new ArrayList<Fixture>();
+        File dir = new File(manifestFile).getAbsoluteFile().getParentFile();
+        try (BufferedReader br = new BufferedReader(new FileReader(manifestFile))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = br.readLine()) != null) {
+                lineNumber++;
+                String name = manifestFile + ":" + lineNumber;
+                Matcher info = INFO_LINE.matcher(line);
+                if (info.matches()) {
+                    fixtures.add(new Fixture(info.group(1), Integer.parseInt(info.group(4)),
+                            Integer.parseInt(info.group(5)), Integer.parseInt(info.group(6)),
+                            Integer.parseInt(info.group(7)), resolve(dir, info.group(3)),
+                            resolve(dir, info.group(2))));
+                    continue;
+                }
+                String[] fields = line.trim().split("\\s+");
+                if (line.trim().startsWith("#") || fields.length != 6) {
+                    continue;
+                }
+                try {
+                    fixtures.add(new Fixture(name, Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                            Integer.parseInt(fields[2]), Integer.parseInt(fields[3]),
+                            resolve(dir, fields[4]), resolve(dir, fields[5])));
+                } catch (NumberFormatException ex) {
+                    throw new IOException(name + ": " + ex.getMessage(), ex);
+                }
+            }
+        }
+        return fixtures;
+    }
+
+    private static String resolve(File dir, String file) {
+        File resolved = new File(file);
+        return resolved.isAbsolute() ? file : new File(dir, file).getPath();
+    }
+
+    /**
+     * Check all the fixtures on the pool of threads, and wait for them
+     *
+     * @param fixtures fixtures to check
+     * @return the results, in the same order as fixtures
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     **/
+    public List<FixtureResult> runAll(List<Fixture> fixtures) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<FixtureResult>> pending = new ArrayList<Future<FixtureResult>>(fixtures.size());
+            for (Fixture fixture : fixtures) {
+                pending.add(pool.submit(() -> check(fixture)));
+            }
+            List<FixtureResult> results = new ArrayList<FixtureResult>(fixtures.size());
+            for (Future<FixtureResult> result : pending) {
+                try {
+                    results.add(result.get());
+                } catch (ExecutionException ex) {
+                    // check catches the exceptions of the fixture itself
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Check one fixture on the calling thread
+     *
+     * @param fixture the fixture to check
+     * @return its result
+     **/
+    public FixtureResult check(Fixture fixture) {
+        long start = System.nanoTime();
+        int checked = 0;
+        // Closing the agent closes its steps and releases its backend
+        try (ExpectedStates expected = ExpectedStates.open(fixture.statesFile);
+             TreasureFinder TAgent = new TreasureFinder(fixture.dim, EventSink.NONE,
+                     backends.apply(fixture.dim))) {
+            TAgent.setEnvironment(new TreasureWorldEnv(fixture.dim, fixture.tX, fixture.tY, EventSink.NONE));
+            TAgent.loadListOfSteps(fixture.numSteps, fixture.stepsFile);
+            TFState target = new TFState(fixture.dim);
+            for (int step = 1; step <= fixture.numSteps; step++) {
+                if (!expected.next(target)) {
+                    throw new IOException(fixture.statesFile + " has only " + (step - 1) + " states");
+                }
+                TAgent.runNextStep();
+                if (!target.equals(TAgent.getState())) {
+                    return new FixtureResult(fixture, checked, step, diff(target, TAgent.getState()), null,
+                            System.nanoTime() - start);
+                }
+                checked++;
+            }
+            return new FixtureResult(fixture, checked, 0, null, null, System.nanoTime() - start);
+        } catch (IOException | ContradictionException | TimeoutException | RuntimeException ex) {
+            return new FixtureResult(fixture, checked, 0, null, ex, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Show the differences between two states, with the rows as printState
+     * shows them: '?' and 'X' where both states agree, '+' where only the
+     * actual state has the position as possible, and '-' where only the
+     * expected state has it
+     *
+     * @param expected the expected state
+     * @param actual the state of the agent
+     * @return the list of differing positions, and the grid
+     **/
+    public static String diff(TFState expected, TFState actual) {
+        StringBuilder positions = new StringBuilder();
+        StringBuilder grid = new StringBuilder();
+        int differences = 0;
+        for (int i = expected.wDim; i >= 1; i--) {
+            grid.append('\t');
+            for (int j = 1; j <= expected.wDim; j++) {
+                boolean want = expected.isPossible(i, j);
+                boolean have = actual.isPossible(i, j);
+                char mark = want == have ? (want ? '?' : 'X') : (have ? '+' : '-');
+                if (want != have) {
+                    differences++;
+                    positions.append(" (").append(i).append(',').append(j).append(')').append(mark);
+                }
+                grid.append(mark).append(' ');
+            }
+            grid.append('\n');
+        }
+        return differences + " positions differ:" + positions + "\n" + grid;
+    }
+
+    /**
+     * Print one line per fixture (name, time, and steps checked or the
+     * failure with its diff) and a final summary
+     *
+     * @param results results of runAll
+     * @param wallNanos total time taken by runAll
+     **/
+    public static void printSummary(List<FixtureResult> results, long wallNanos) {
+        int failed = 0;
+        for (FixtureResult result : results) {
+            if (result.passed()) {
+                System.out.printf("%s\t%.3f ms\tOK (%d steps)%n", result.fixture.name,
+                        result.elapsedNanos / 1e6, result.stepsChecked);
+            } else if (result.error != null) {
+                failed++;
+                System.out.printf("%s\t%.3f ms\tERROR: %s%n", result.fixture.name,
+                        result.elapsedNanos / 1e6, result.error);
+            } else {
+                failed++;
+                System.out.printf("%s\t%.3f ms\tFAILED at step %d: %s", result.fixture.name,
+                        result.elapsedNanos / 1e6, result.failedStep, result.diff);
+            }
+        }
+        System.out.printf("%d fixtures, %d failed, %.3f ms%n", results.size(), failed, wallNanos / 1e6);
+    }
+
+    /**
+     * Expected states of a fixture, read one at a time from a text states
+     * file or from a binary one (see StateSnapshotWriter)
+     **/
+    private abstract static class ExpectedStates implements Closeable {
+
+        abstract boolean next(TFState state) throws IOException;
+
+        static ExpectedStates open(String statesFile) throws IOException {
+            Path file = Paths.get(statesFile);
+            boolean binary = false;
+            if (Files.size(file) >= 4) {
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                    binary = in.readInt() == StateSnapshotWriter.MAGIC;
+                }
+            }
+            if (binary) {
+                StateSnapshotReader reader = new StateSnapshotReader(file);
+                return new ExpectedStates() {
+                    boolean next(TFState state) throws IOException {
+                        return reader.read(state);
+                    }
+
+                    public void close() throws IOException {
+                        reader.close();
+                    }
+                };
+            }
+            BufferedReader br = Files.newBufferedReader(file);
+            return new ExpectedStates() {
+                boolean next(TFState state) throws IOException {
+                    return FixtureConverter.readTextState(br, state);
+                }
+
+                public void close() throws IOException {
+                    br.close();
+                }
+            };
+        }
+    }
+}
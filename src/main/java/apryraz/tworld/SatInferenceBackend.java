@@ -0,0 +1,835 @@
+package apryraz.tworld;
+
+import org.sat4j.core.VecInt;
+import org.sat4j.minisat.SolverFactory;
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.IConstr;
+import org.sat4j.specs.ISolver;
+import org.sat4j.specs.TimeoutException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+*  Inference backend that stores the rules of the Treasure World and the
+*  readings of the detector in a propositional formula, in a SAT4J
+*  solver, and asks the solver which positions can not contain the
+*  Treasure.
+*
+**/
+public class SatInferenceBackend implements InferenceBackend {
+
+
+/**
+*  Array of clauses that represent conclusiones obtained in the last
+* call to the inference function, but rewritten using the "past" variables
+**/
+    ArrayList<VecInt> futureToPast = new ArrayList<VecInt>();
+/**
+*  Positions (lineal index starting at 0) that the inference has already
+*  proven can not contain the Treasure. They are never asked again, and
+*  their conclusion is stored in futureToPast only once.
+**/
+    BitSet discardedPositions;
+/**
+*  Positions (lineal index starting at 0) where the detector has already
+*  been used. The Treasure does not move, so sensing there again gives no
+*  new evidence.
+**/
+    BitSet sensedPositions;
+/**
+*  Without evidence masks: positions covered by the readings received
+*  since the last inference, and whether any of them was a reading 1 or 2,
+*  that also rules out every position it does not cover
+**/
+    BitSet coveredPositions;
+    boolean narrowed;
+/**
+*  Without evidence masks: positions found possible in a model of the
+*  formula during the last inference, and buffers of the questions asked
+*  one position at a time, reused from step to step
+**/
+    BitSet modelPositions;
+    int[] candidates = new int[9];
+    boolean[] notPossible = new boolean[9];
+/**
+*   SAT solver object that stores the logical boolean formula with the rules
+*   and current knowledge about not possible locations for Treasure
+**/
+    ISolver solver;
+/**
+*   Copies of the formula, kept in sync with solver, used to ask the
+*   inference questions in parallel. It is null when all the questions are
+*   asked to solver; otherwise replicas[0] is solver itself.
+**/
+    ISolver[] replicas;
+/**
+*   Threads that ask the questions to the replicas
+**/
+    ExecutorService inferencePool;
+/**
+*  Positions compatible with the readings, kept with the region operations
+*  of the bitset backend so that the solver does not have to derive them
+*  again. It is null when every conclusion comes from the solver.
+**/
+    BitsetInferenceBackend evidenceMasks;
+/**
+*  Number of questions (isSatisfiable calls) asked to the solver and its
+*  replicas
+**/
+    final LongAdder solverCalls = new LongAdder();
+/**
+*  Pool where the solvers are given back by release(), or null if they are
+*  not reused. With a pool, every clause added after Gamma contains the
+*  negation of SelectorVariable, that is assumed true in every question,
+*  and runClauses.get(r) keeps the clauses added to the solver replicas[r] (or
+*  solver, for r = 0) in order, to remove them before giving it back.
+**/
+    GammaPool gammas;
+    List<List<IConstr>> runClauses;
+/**
+*  Set when no position was left possible: the solver may have learnt the
+*  negation of the selector, so it is not given back to the pool
+**/
+    boolean inconsistent;
+/**
+*  Set when the solvers reduced a clause of the run to a unit clause: it
+*  is not kept as a constraint that can be removed, and it has changed
+*  the facts of the solver, so the solvers are not given back to the pool
+**/
+    boolean unremovable;
+/**
+*  Dimension of the world and total size of the world (Dim^2)
+**/
+    int WorldDim, WorldLinealDim;
+/**
+*  Positions covered by each reading of the detector
+**/
+    final SensorModel sensor;
+
+/**
+*    This set of variables CAN be use to mark the beginning of different subsets
+*    of variables in your propositional formula (but you may have more sets of
+*    variables in your solution or use totally different variables to identify
+     your different subsets of variables).
+**/
+    int TreasurePastOffset; // Offset for the variables of the past state of the Treasure
+    int TreasureFutureOffset; // Offset for the variables of the future state of the Treasure
+    int DetectorOffset1; // Offset for the variables of the Detector reading 1
+    int DetectorOffset2; // Offset for the variables of the Detector reading 2
+    int DetectorOffset3; // Offset for the variables of the Detector reading 3
+    int SelectorVariable; // Assumed true in every question when the solver comes from a GammaPool
+    int actualLiteral; // Next free variable, once all the subsets have been laid out
+
+
+   /**
+     The class constructor must create the initial Boolean formula with the
+     rules of the Treasure World.
+
+     @param WDim the dimension of the Treasure World
+
+   **/
+    public SatInferenceBackend(int WDim)
+    {
+        this(WDim, true);
+    }
+
+   /**
+     Class constructor that can leave all the conclusions to the solver,
+     without discarding first the positions incompatible with the readings.
+
+     @param WDim the dimension of the Treasure World
+     @param useEvidenceMasks whether the readings are also applied directly
+                             to the state, before asking the solver
+
+   **/
+    public SatInferenceBackend(int WDim, boolean useEvidenceMasks)
+    {
+        this(WDim, useEvidenceMasks, null);
+    }
+
+   /**
+     Class constructor that takes the solver with Gamma from a pool, when
+     there is one of the same dimension, instead of building it. The
+     solver (and its copies, with setParallelInference) go back to the pool
+     with release().
+
+     @param WDim the dimension of the Treasure World
+     @param useEvidenceMasks whether the readings are also applied directly
+                             to the state, before asking the solver
+     @param gammas pool of solvers, or null to always build a new one
+
+   **/
+    public SatInferenceBackend(int WDim, boolean useEvidenceMasks, GammaPool gammas)
+    {
+        this.gammas = gammas;
+        WorldDim = WDim;
+        sensor = SensorModel.of(WDim);
+        WorldLinealDim = Math.multiplyExact(WorldDim, WorldDim);
+        discardedPositions = new BitSet(WorldLinealDim);
+        sensedPositions = new BitSet(WorldLinealDim);
+        coveredPositions = new BitSet(WorldLinealDim);
+        modelPositions = new BitSet(WorldLinealDim);
+        if (useEvidenceMasks) {
+            evidenceMasks = new BitsetInferenceBackend(WorldDim);
+        }
+
+        try {
+            if (gammas == null) {
+                solver = buildGamma();
+            } else {
+                layoutVariables();
+                solver = pooledGamma(actualLiteral - 1);
+                runClauses = newRunClauses(1);
+            }
+        } catch (FileNotFoundException ex) {
+            Logger.getLogger(SatInferenceBackend.class.getName()).log(Level.SEVERE, null, ex);
+        } catch (IOException | ContradictionException ex) {
+            Logger.getLogger(SatInferenceBackend.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+      Ask the inference questions of each step in parallel, to numSolvers
+      copies of the formula. The positions still unknown are shared among
+      the copies, and their answers are merged in the order of the positions,
+      so the resulting states are the same as with a single solver. Every
+      clause added to the formula after this call goes to all the copies.
+      This function must be called before adding any evidence.
+
+      @param numSolvers number of copies of the formula (and of threads)
+      @throws ContradictionException if Gamma can not be built
+
+    **/
+    public void setParallelInference( int numSolvers ) throws ContradictionException
+    {
+        if (!sensedPositions.isEmpty() || !discardedPositions.isEmpty()) {
+            throw new IllegalStateException("Parallel inference must be set before the first step");
+        }
+        if (numSolvers < 2) {
+            throw new IllegalArgumentException("Parallel inference needs at least two solvers: " + numSolvers);
+        }
+        inferencePool = Executors.newFixedThreadPool(numSolvers, task -> {
+            Thread thread = new Thread(task, "treasure-inference");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        int totalNumVariables = actualLiteral - 1;
+        List<Future<ISolver>> copies = new ArrayList<Future<ISolver>>(numSolvers - 1);
+        for (int r = 1; r < numSolvers; r++) {
+            copies.add(inferencePool.submit(() -> pooledGamma(totalNumVariables)));
+        }
+        replicas = new ISolver[numSolvers];
+        replicas[0] = solver;
+        if (gammas != null) {
+            runClauses = newRunClauses(numSolvers);
+        }
+        for (int r = 1; r < numSolvers; r++) {
+            try {
+                replicas[r] = copies.get(r - 1).get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof ContradictionException) {
+                    throw (ContradictionException) ex.getCause();
+                }
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+    }
+
+    /**
+    *   Add the evidence clause for the reading of the detector at (x,y),
+    *   after the clauses of the detector variable of that reading, as they
+    *   are only generated the first time the detector is used at (x,y)
+    *
+    *   @param x x coordinate of the position where the detector was used
+    *   @param y y coordinate of the position where the detector was used
+    *   @param sensorValue reading of the detector: 1, 2 or 3
+    **/
+    public void addEvidence(int x, int y, int sensorValue) throws ContradictionException {
+        int sensed = coordToLineal(x, y, 0);
+        if (sensedPositions.get(sensed)) {
+            return;
+        }
+        sensedPositions.set(sensed);
+
+        VecInt evidence = new VecInt();
+        if (sensorValue == 1) {
+            addSensorClauses(x, y, 1, coordToLineal(x, y, DetectorOffset1));
+            evidence.insertFirst(coordToLineal(x, y, DetectorOffset1));
+        } else if (sensorValue == 2) {
+            addSensorClauses(x, y, 2, coordToLineal(x, y, DetectorOffset2));
+            evidence.insertFirst(coordToLineal(x, y, DetectorOffset2));
+        } else if (sensorValue == 3) {
+            addSensorClauses(x, y, 3, coordToLineal(x, y, DetectorOffset3));
+            evidence.insertFirst(-coordToLineal(x, y, DetectorOffset3));
+        } else {
+            return;
+        }
+        addClause(evidence);
+        if (evidenceMasks != null) {
+            evidenceMasks.addEvidence(x, y, sensorValue);
+        } else {
+            for (int offset : sensor.neighbourhood(sensorValue, x, y)) {
+                coveredPositions.set(sensed + offset);
+            }
+            narrowed |= sensorValue != 3;
+        }
+    }
+
+    /**
+    *  This function should add all the clauses stored in the list
+    *  futureToPast to the formula stored in solver.
+    *   Use the function addClause( VecInt ) to add each clause to the solver
+    *
+    **/
+    public void addLastConclusions() throws ContradictionException {
+
+            for (VecInt clause : futureToPast) {
+                addClause(clause);
+            }
+
+            futureToPast.clear();
+        }
+
+
+    /**
+    *  Add the conclusions that the Treasure is not at the positions
+    *  discarded in state, with the "past" variables, as if they had been
+    *  obtained by the inference. The positions already discarded are not
+    *  added again.
+    *
+    *  @param state a state of knowledge for a world of the same dimension
+    **/
+    public void restoreKnowledge(TFState state) throws ContradictionException {
+        for (int i = discardedPositions.nextClearBit(0); i < WorldLinealDim; i = discardedPositions.nextClearBit(i + 1)) {
+            if (!state.isPossible(i)) {
+                discardedPositions.set(i);
+                VecInt concPast = new VecInt();
+                concPast.insertFirst(-(i + TreasurePastOffset));
+                addClause(concPast);
+            }
+        }
+        if (evidenceMasks != null) {
+            evidenceMasks.restoreKnowledge(state);
+        }
+    }
+
+    /**
+    *  Add a clause to the formula, in solver and in all its replicas
+    *
+    *  @param clause the clause to add
+    **/
+    private void addClause(VecInt clause) throws ContradictionException {
+        if (gammas == null) {
+            solver.addClause(clause);
+            if (replicas != null) {
+                for (int r = 1; r < replicas.length; r++) {
+                    replicas[r].addClause(clause);
+                }
+            }
+            return;
+        }
+        clause.push(-SelectorVariable);
+        for (int r = 0; r < runClauses.size(); r++) {
+            IConstr added = (r == 0 ? solver : replicas[r]).addClause(clause);
+            // null when the solver finds the clause already satisfied
+            if (added != null && added.size() < 2) {
+                unremovable = true;
+            } else if (added != null) {
+                runClauses.get(r).add(added);
+            }
+        }
+    }
+
+    /**
+    *  Give back the solver and its replicas to the pool, without the
+    *  clauses added after Gamma nor the clauses learnt from them, and stop
+    *  the threads of the parallel inference. The backend can not be used
+    *  after this call.
+    **/
+    public void release() {
+        if (inferencePool != null) {
+            inferencePool.shutdownNow();
+        }
+        if (gammas != null && solver != null && !inconsistent && !unremovable) {
+            for (int r = 0; r < runClauses.size(); r++) {
+                ISolver gamma = r == 0 ? solver : replicas[r];
+                List<IConstr> clauses = runClauses.get(r);
+                try {
+                    // Each clause is the last one added when it is removed
+                    for (int k = clauses.size() - 1; k >= 0; k--) {
+                        gamma.removeSubsumedConstr(clauses.get(k));
+                    }
+                } catch (IllegalArgumentException ex) {
+                    // The solver did not keep the clause as it was added
+                    continue;
+                }
+                gamma.clearLearntClauses();
+                gammas.release(WorldDim, gamma);
+            }
+        }
+        solver = null;
+        replicas = null;
+    }
+
+    /**
+     * @return an empty list of assumptions for a question to the solver,
+     *         with the selector of the clauses of this run when the solver
+     *         comes from a pool
+     **/
+    private VecInt newAssumptions() {
+        VecInt assumptions = new VecInt();
+        if (gammas != null) {
+            assumptions.push(SelectorVariable);
+        }
+        return assumptions;
+    }
+
+    /**
+    * This function should check, using the future variables related
+    * to possible positions of Treasure, whether it is a logical consequence
+    * that Treasure is NOT at certain positions. This should be checked for all the
+    * positions of the Treasure World.
+    * The logical consequences obtained, should be then stored in the futureToPast list
+    * but using the variables corresponding to the "past" variables of the same positions
+    *
+    * With evidence masks, the masks are the authority: they discard
+    * exactly the positions ruled out by the readings, the same ones the
+    * formula rules out, so the solver is not asked anything and only
+    * receives the conclusions.
+    *
+    * Without masks, the solver works out the positions still possible:
+    *
+    *  - after a reading 1 or 2, every position out of its neighbourhood
+    *    can be ruled out, so the solver is asked for a model of the
+    *    formula. The position of the Treasure in that model is possible,
+    *    and the next question excludes it, until there is no model left:
+    *    every position not found in a model is then discarded. That is
+    *    one question per position still possible after the step, plus
+    *    one, so at most 6 questions after a reading 1 and 5 after a
+    *    reading 2, whatever the size of the world.
+    *  - after readings 3 only, only the positions they cover can change,
+    *    so each one still possible is asked alone, with a single literal
+    *    assumption: at most 9 questions per reading, shared among the
+    *    replicas in the parallel inference.
+    *
+    * A step that gives no new reading asks nothing. Positions discarded in
+    * previous steps are never asked again, so each conclusion is added only
+    * once to futureToPast, and the clauses added to the formula over a
+    * whole run are bounded by the number of positions.
+    **/
+    public void performInference(TFState tfstate) throws TimeoutException {
+        if (evidenceMasks != null) {
+            evidenceMasks.performInference(tfstate);
+            for (int i = discardedPositions.nextClearBit(0); i < WorldLinealDim;
+                 i = discardedPositions.nextClearBit(i + 1)) {
+                if (!tfstate.isPossible(i)) {
+                    discardPosition(i);
+                }
+            }
+        } else if (narrowed) {
+            excludeModels(tfstate);
+        } else {
+            askCovered(tfstate);
+        }
+        coveredPositions.clear();
+        narrowed = false;
+        checkConsistency();
+    }
+
+    /**
+     * Find the positions possible in some model of the formula, excluding
+     * each one found from the next question, and discard all the others
+     **/
+    private void excludeModels(TFState tfstate) throws TimeoutException {
+        modelPositions.clear();
+        VecInt question = newAssumptions();
+        while (true) {
+            solverCalls.increment();
+            if (!solver.isSatisfiable(question)) {
+                break;
+            }
+            int found = -1;
+            for (int i = discardedPositions.nextClearBit(0); i < WorldLinealDim && found < 0;
+                 i = discardedPositions.nextClearBit(i + 1)) {
+                if (!modelPositions.get(i) && solver.model(i + TreasureFutureOffset)) {
+                    found = i;
+                }
+            }
+            if (found < 0) {
+                throw new IllegalStateException("Model without a position for the Treasure");
+            }
+            modelPositions.set(found);
+            question.push(-(found + TreasureFutureOffset));
+        }
+        for (int i = discardedPositions.nextClearBit(0); i < WorldLinealDim; i = discardedPositions.nextClearBit(i + 1)) {
+            if (!modelPositions.get(i)) {
+                discard(tfstate, i);
+            }
+        }
+    }
+
+    /**
+     * Ask, one at a time, whether the Treasure can be at each position
+     * covered by the new readings that is still possible
+     **/
+    private void askCovered(TFState tfstate) throws TimeoutException {
+        int numCandidates = 0;
+        for (int i = coveredPositions.nextSetBit(0); i >= 0; i = coveredPositions.nextSetBit(i + 1)) {
+            if (!discardedPositions.get(i)) {
+                if (numCandidates == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, 2 * numCandidates);
+                    notPossible = new boolean[candidates.length];
+                }
+                candidates[numCandidates++] = i;
+            }
+        }
+        Arrays.fill(notPossible, 0, numCandidates, false);
+        if (replicas == null) {
+            askQuestions(solver, candidates, numCandidates, 0, 1, notPossible);
+        } else {
+            askInParallel(candidates, numCandidates, notPossible);
+        }
+        for (int k = 0; k < numCandidates; k++) {
+            if (notPossible[k]) {
+                discard(tfstate, candidates[k]);
+            }
+        }
+    }
+
+    /**
+     * Discard a position both in the state and in the formula
+     **/
+    private void discard(TFState tfstate, int lineal) {
+        discardPosition(lineal);
+        int[] coords = linealToCoord(lineal + TreasureFutureOffset, TreasureFutureOffset);
+        tfstate.set(coords[0], coords[1], "X");
+    }
+
+    public long getSolverCalls() {
+        return solverCalls.sum();
+    }
+
+    /**
+     * @return the statistics of SAT4J, added over the solver and its
+     *         replicas (for solvers taken from a pool, they include the
+     *         runs that used them before)
+     **/
+    public Map<String, Number> getSolverStats() {
+        Map<String, Number> stats = new HashMap<String, Number>();
+        ISolver[] solvers = replicas != null ? replicas : new ISolver[]{solver};
+        for (ISolver one : solvers) {
+            // getStat() returns a raw Map of names to numbers
+            for (Object entry : one.getStat().entrySet()) {
+                Map.Entry<?, ?> stat = (Map.Entry<?, ?>) entry;
+                stats.merge(String.valueOf(stat.getKey()), ((Number) stat.getValue()).longValue(),
+                        (a, b) -> a.longValue() + b.longValue());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Ask the questions of the candidates to the replicas at the same time:
+     * position k of the list goes to replica k % replicas.length. Each
+     * answer is written in its own slot of notPossible, so the conclusions
+     * are merged in the order of the positions.
+     */
+    private void askInParallel(int[] candidates, int numCandidates, boolean[] notPossible)
+            throws TimeoutException {
+        List<Future<Void>> questions = new ArrayList<Future<Void>>(replicas.length);
+        for (int r = 0; r < replicas.length; r++) {
+            int first = r;
+            questions.add(inferencePool.submit(() -> {
+                askQuestions(replicas[first], candidates, numCandidates, first, replicas.length, notPossible);
+                return null;
+            }));
+        }
+        for (Future<Void> question : questions) {
+            try {
+                question.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof TimeoutException) {
+                    throw (TimeoutException) ex.getCause();
+                }
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Remember when the knowledge leaves no position for the Treasure
+     **/
+    private void checkConsistency() {
+        if (discardedPositions.cardinality() == WorldLinealDim) {
+            inconsistent = true;
+        }
+    }
+
+    /**
+     * Ask to replica whether the Treasure can be at the positions
+     * candidates[first], candidates[first + stride], ... one at a time
+     *
+     * @param replica the copy of the formula to use
+     * @param candidates lineal indexes of the positions to ask
+     * @param numCandidates number of positions in candidates
+     * @param first first position of candidates to ask
+     * @param stride distance between the positions asked
+     * @param notPossible set to true for the positions asked that can not
+     *        contain the Treasure
+     */
+    private void askQuestions(ISolver replica, int[] candidates, int numCandidates, int first, int stride,
+                              boolean[] notPossible) throws TimeoutException {
+        VecInt question = newAssumptions();
+        int base = question.size();
+        for (int k = first; k < numCandidates; k += stride) {
+            question.shrinkTo(base);
+            question.push(candidates[k] + TreasureFutureOffset);
+            solverCalls.increment();
+            if (!replica.isSatisfiable(question)) {
+                notPossible[k] = true;
+            }
+        }
+    }
+
+    /**
+     * Record that the Treasure is not at position lineal (starting at 0),
+     * and store that conclusion with the past variable in futureToPast
+     *
+     * @param lineal lineal index of the position
+     */
+    private void discardPosition(int lineal) {
+        discardedPositions.set(lineal);
+        VecInt concPast = new VecInt();
+        concPast.insertFirst(-(lineal + TreasurePastOffset));
+        futureToPast.add(concPast);
+    }
+
+    /**
+    * This function builds the initial logical formula of the agent and stores it
+    * into the solver object. It only has the clauses about the position of
+    * the Treasure; the clauses of the detector variables of a position are
+    * added by addEvidence, when the detector is used there, so they do not
+    * grow with the size of the world.
+    *
+    *  @return returns the solver object where the formula has been stored
+    **/
+    public ISolver buildGamma() throws UnsupportedEncodingException,
+            FileNotFoundException, IOException, ContradictionException
+    {
+        // Each subset of variables is given its own block of consecutive
+        // identifiers, so the total number of variables is known beforehand
+        int totalNumVariables = layoutVariables();
+
+        solver = newGamma(totalNumVariables);
+        return solver;
+    }
+
+    /**
+     * Take a solver with Gamma from the pool, or build a new one if there is
+     * none (or there is no pool)
+     *
+     * @param totalNumVariables total number of variables of the formula
+     * @return a solver with the initial formula of the agent
+     * @throws ContradictionException ContradictionException error
+     **/
+    private ISolver pooledGamma(int totalNumVariables) throws ContradictionException
+    {
+        ISolver gamma = gammas == null ? null : gammas.acquire(WorldDim);
+        return gamma != null ? gamma : newGamma(totalNumVariables);
+    }
+
+    private static List<List<IConstr>> newRunClauses(int numSolvers) {
+        List<List<IConstr>> clauses = new ArrayList<List<IConstr>>(numSolvers);
+        for (int r = 0; r < numSolvers; r++) {
+            clauses.add(new ArrayList<IConstr>());
+        }
+        return clauses;
+    }
+
+    /**
+     * Make a new solver with the clauses of Gamma, once the variables have
+     * been laid out. It does not modify the agent, so it can be called from
+     * several threads at the same time.
+     *
+     * @param totalNumVariables total number of variables of the formula
+     * @return a new solver with the initial formula of the agent
+     * @throws ContradictionException ContradictionException error
+     **/
+    private ISolver newGamma(int totalNumVariables) throws ContradictionException
+    {
+        ISolver gamma = SolverFactory.newDefault();
+        gamma.setTimeout(3600);
+        gamma.newVar(totalNumVariables);
+
+        past(gamma);
+        future(gamma);
+        pastToFuture(gamma);
+
+        return gamma;
+    }
+
+    /**
+     * Assigns a block of WorldLinealDim consecutive variables to each subset
+     * of variables of the formula: past and future Treasure positions, and
+     * the detector readings 1, 2 and 3, plus the selector variable when the
+     * solver comes from a pool.
+     *
+     * @return the total number of variables of the formula
+     */
+    private int layoutVariables() {
+        actualLiteral = 1;
+        TreasurePastOffset = reserveVariables(WorldLinealDim);
+        TreasureFutureOffset = reserveVariables(WorldLinealDim);
+        DetectorOffset1 = reserveVariables(WorldLinealDim);
+        DetectorOffset2 = reserveVariables(WorldLinealDim);
+        DetectorOffset3 = reserveVariables(WorldLinealDim);
+        if (gammas != null) {
+            SelectorVariable = reserveVariables(1);
+        }
+        return actualLiteral - 1;
+    }
+
+    /**
+     * Reserves count consecutive variables, starting at actualLiteral
+     *
+     * @param count number of variables to reserve
+     * @return the first variable of the reserved block
+     * @throws ArithmeticException if the identifiers do not fit in an int
+     */
+    private int reserveVariables(int count) {
+        int offset = actualLiteral;
+        actualLiteral = Math.addExact(actualLiteral, count);
+        return offset;
+    }
+
+    /**
+     * Adds to the formula (solver and its replicas) the clauses that make
+     * the detector variable of a reading at (x,y) equivalent to "the
+     * Treasure is at one of the positions covered by the reading":
+     * t_[i,j] -> detector for every position, and detector -> t_[i1,j1] v ... v t_[in,jn]
+     *
+     * @param x x coordinate of the position where the detector was used
+     * @param y y coordinate of the position where the detector was used
+     * @param reading reading of the detector: 1, 2 or 3
+     * @param detector variable of the detector for that reading at (x,y)
+     * @throws ContradictionException ContradictionException error
+     */
+    private void addSensorClauses(int x, int y, int reading, int detector) throws ContradictionException {
+        int future = coordToLineal(x, y, TreasureFutureOffset);
+        VecInt someTreasure = new VecInt();
+        someTreasure.insertFirst(-detector);
+        for (int offset : sensor.neighbourhood(reading, x, y)) {
+            int varValue = future + offset;
+            VecInt clause = new VecInt();
+            clause.insertFirst(detector);
+            clause.insertFirst(-varValue);
+            addClause(clause);
+            someTreasure.insertFirst(varValue);
+        }
+        addClause(someTreasure);
+    }
+
+
+    /**
+     * Adds to solver the atLeastOneEnvelope clause (past)
+     * @throws ContradictionException ContradictionException error
+     */
+    private void past(ISolver gamma) throws ContradictionException {
+        VecInt clause = new VecInt();
+        for (int i = 0; i < WorldLinealDim; i++) {
+            clause.push(i + TreasurePastOffset);
+        }
+        gamma.addClause(clause);
+    }
+    /**
+     * Adds to solver the atLeastOneEnvelope clause and the atMostOne
+     * constraint (future), as there is only one Treasure in the world
+     * @throws ContradictionException ContradictionException error
+     */
+    private void future(ISolver gamma) throws ContradictionException {
+        VecInt clause = new VecInt();
+        for (int i = 0; i < WorldLinealDim; i++) {
+            clause.push(i + TreasureFutureOffset);
+        }
+        gamma.addAtMost(clause, 1);
+        gamma.addClause(clause);
+    }
+
+    /**
+     * Adds the clauses at solver to keep consistency
+     * @throws ContradictionException ContradictionException error
+     */
+    private void pastToFuture(ISolver gamma) throws ContradictionException {
+        VecInt clause;
+        for (int i = 0; i < WorldLinealDim; i++) {
+            clause = new VecInt();
+            clause.push(i + TreasurePastOffset);
+            clause.insertFirst(-(i + TreasureFutureOffset));
+            gamma.addClause(clause);
+        }
+    }
+
+
+
+
+    /**
+         * Convert a coordinate pair (x,y) to the integer value  t_[x,y]
+         * of variable that stores that information in the formula, using
+         * offset as the initial index for that subset of position variables
+         * (past and future position variables have different variables, so different
+         * offset values)
+         *
+         *  @param x x coordinate of the position variable to encode
+         *  @param y y coordinate of the position variable to encode
+         *  @param offset initial value for the subset of position variables
+         *         (past or future subset)
+         *  @return the integer indentifer of the variable  b_[x,y] in the formula
+        **/
+    public int coordToLineal(int x, int y, int offset) {
+        return ((x - 1) * WorldDim) + (y - 1) + offset;
+    }
+
+
+    /**
+     * Perform the inverse computation to the previous function.
+     * That is, from the identifier t_[x,y] to the coordinates  (x,y)
+     *  that it represents
+     *
+     * @param lineal identifier of the variable
+     * @param offset offset associated with the subset of variables that
+     *        lineal belongs to
+     * @return array with x and y coordinates
+    **/
+    public int[] linealToCoord(int lineal, int offset)
+    {
+        lineal = lineal - offset + 1;
+        int[] coords = new int[2];
+        coords[1] = ((lineal-1) % WorldDim) + 1;
+        coords[0] = (lineal - 1) / WorldDim + 1;
+        return coords;
+    }
+
+
+
+}
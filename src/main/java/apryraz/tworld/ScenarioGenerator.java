@@ -0,0 +1,328 @@
+package apryraz.tworld;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+*  Makes synthetic fixture sets of any size: a sequence of steps that
+*  follows a trajectory policy, and the state of knowledge the agent must
+*  have after each step. The expected states do not come from an agent:
+*  they are worked out directly from the readings of the SensorModel,
+*  keeping as possible only the positions where the Treasure would have
+*  given all the readings seen so far.
+*
+*  The steps and the states are written as they are made, in the text
+*  formats of steps*.txt and states*.txt or in the binary formats of
+*  BinaryStepWriter and StateSnapshotWriter, so the size of the world and
+*  the number of steps are only limited by the disk.
+**/
+public class ScenarioGenerator {
+
+/**
+*  Trajectories of the agent. SPIRAL and SWEEP visit the centres of the
+*  3x3 blocks of the world, so each detection covers a new block, and
+*  start again when they have visited all of them.
+**/
+    public enum Policy {
+        /** Random moves of at most one position in each coordinate **/
+        RANDOM_WALK,
+        /** Square spiral from the centre of the world outwards **/
+        SPIRAL,
+        /** Row after row of blocks, alternating the direction **/
+        SWEEP
+    }
+
+/**
+*  Steps written per line in the text steps files
+**/
+    private static final int STEPS_PER_LINE = 20;
+
+    /**
+     * Endless sequence of steps of a policy
+     *
+     * @param policy trajectory to follow
+     * @param dim dimension of the world
+     * @param seed seed of the random moves (only used by RANDOM_WALK)
+     * @return a source that never ends
+     **/
+    public static StepSource trajectory( Policy policy, int dim, long seed ) {
+        if (dim < 1) {
+            throw new IllegalArgumentException("Wrong dimension of the world: " + dim);
+        }
+        switch (policy) {
+            case RANDOM_WALK:
+                return new RandomWalk(dim, seed);
+            case SPIRAL:
+                return new Spiral(dim);
+            default:
+                return new Sweep(dim);
+        }
+    }
+
+    /**
+     * Add to a state of knowledge the reading of the detector at (x,y):
+     * reading 1 or 2 keeps only the positions it covers, and reading 3
+     * discards the 3x3 block around (x,y).
+     *
+     * @param state state of knowledge, updated with the reading
+     * @param tX X position of the Treasure
+     * @param tY Y position of the Treasure
+     * @param x x coordinate of the detection
+     * @param y y coordinate of the detection
+     **/
+    public static void addReading( TFState state, int tX, int tY, int x, int y ) {
+        SensorModel sensor = SensorModel.of(state.wDim);
+        int reading = SensorModel.reading(tX, tY, x, y);
+        if (reading == 3) {
+            state.discard(sensor.lineal(x, y), sensor.neighbourhood(3, x, y));
+        } else {
+            state.retainOnly(sensor.lineal(x, y), sensor.neighbourhood(reading, x, y));
+        }
+    }
+
+    /**
+     * Write a fixture set: its steps file and its states file, named
+     * name-steps and name-states with the extension .txt (text formats) or
+     * .bin (binary formats)
+     *
+     * @param dir directory of the files
+     * @param name prefix of the names of the files
+     * @param dim dimension of the world
+     * @param tX X position of the Treasure
+     * @param tY Y position of the Treasure
+     * @param numSteps number of steps
+     * @param policy trajectory of the agent
+     * @param seed seed of the random moves
+     * @param binary true for the binary formats, false for the text ones
+     * @return the fixture, as it would be read from a manifest
+     * @throws IOException if a file can not be written
+     **/
+    public static RegressionHarness.Fixture generate( Path dir, String name, int dim, int tX, int tY,
+                                                      int numSteps, Policy policy, long seed, boolean binary )
+            throws IOException {
+        if (tX < 1 || tX > dim || tY < 1 || tY > dim) {
+            throw new IllegalArgumentException("Treasure out of the world: " + tX + "," + tY);
+        }
+        String extension = binary ? ".bin" : ".txt";
+        Path stepsFile = dir.resolve(name + "-steps" + extension);
+        Path statesFile = dir.resolve(name + "-states" + extension);
+        StepSource steps = trajectory(policy, dim, seed);
+        TFState state = new TFState(dim);
+        try (FixtureOutput out = binary ? new BinaryFixtureOutput(stepsFile, statesFile, dim)
+                                        : new TextFixtureOutput(stepsFile, statesFile)) {
+            for (int step = 1; step <= numSteps; step++) {
+                steps.next();
+                addReading(state, tX, tY, steps.getX(), steps.getY());
+                out.write(step, steps.getX(), steps.getY(), state);
+            }
+        }
+        return new RegressionHarness.Fixture(name, dim, tX, tY, numSteps, stepsFile.toString(),
+                statesFile.toString());
+    }
+
+    /**
+     *  This function makes one fixture set and prints its line for the
+     *  manifests of RegressionHarness:
+     *  arg[0] = directory of the files
+     *  arg[1] = name of the fixture set, prefix of its files
+     *  arg[2] = dimension of the world
+     *  arg[3], arg[4] = x, y coordinates of the treasure
+     *  arg[5] = num of steps
+     *  arg[6] = policy: random_walk, spiral or sweep
+     *  arg[7] = (optional) seed of the random moves, 0 by default
+     *  arg[8] = (optional) format: "text" (default) or "binary"
+     **/
+    public static void main( String[] args ) throws IOException {
+        if (args.length < 7 || args.length > 9) {
+            System.out.println("Usage: ScenarioGenerator <dir> <name> <dim> <tX> <tY> <numSteps>"
+                    + " random_walk|spiral|sweep [seed] [text|binary]");
+            return;
+        }
+        RegressionHarness.Fixture fixture = generate(Paths.get(args[0]), args[1], Integer.parseInt(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]),
+                Policy.valueOf(args[6].toUpperCase()), args.length > 7 ? Long.parseLong(args[7]) : 0,
+                args.length > 8 && args[8].equals("binary"));
+        System.out.println(fixture.dim + " " + fixture.tX + " " + fixture.tY + " " + fixture.numSteps
+                + " " + fixture.stepsFile + " " + fixture.statesFile);
+    }
+
+    /**
+     * Where the steps and states of a fixture set are written
+     **/
+    private interface FixtureOutput extends Closeable {
+        void write( int step, int x, int y, TFState state ) throws IOException;
+    }
+
+    private static class TextFixtureOutput implements FixtureOutput {
+        private final BufferedWriter steps, states;
+
+        TextFixtureOutput( Path stepsFile, Path statesFile ) throws IOException {
+            steps = Files.newBufferedWriter(stepsFile, StandardCharsets.US_ASCII);
+            states = Files.newBufferedWriter(statesFile, StandardCharsets.US_ASCII);
+        }
+
+        public void write( int step, int x, int y, TFState state ) throws IOException {
+            steps.write(x + "," + y);
+            steps.write(step % STEPS_PER_LINE == 0 ? '\n' : ' ');
+            if (step > 1) {
+                states.write('\n');
+            }
+            char[] row = new char[2 * state.wDim];
+            for (int i = state.wDim; i >= 1; i--) {
+                for (int j = 1; j <= state.wDim; j++) {
+                    row[2 * (j - 1)] = state.isPossible(i, j) ? '?' : 'X';
+                    row[2 * (j - 1) + 1] = ' ';
+                }
+                states.write(row);
+                states.write('\n');
+            }
+        }
+
+        public void close() throws IOException {
+            try {
+                steps.close();
+            } finally {
+                states.close();
+            }
+        }
+    }
+
+    private static class BinaryFixtureOutput implements FixtureOutput {
+        private final BinaryStepWriter steps;
+        private final StateSnapshotWriter states;
+
+        BinaryFixtureOutput( Path stepsFile, Path statesFile, int dim ) throws IOException {
+            steps = new BinaryStepWriter(stepsFile, dim);
+            states = new StateSnapshotWriter(statesFile, dim);
+        }
+
+        public void write( int step, int x, int y, TFState state ) throws IOException {
+            steps.write(x, y);
+            states.write(step, state);
+        }
+
+        public void close() throws IOException {
+            try {
+                steps.close();
+            } finally {
+                states.close();
+            }
+        }
+    }
+
+    private static class RandomWalk implements StepSource {
+        private final int dim;
+        private final SplittableRandom random;
+        private int x, y;
+
+        RandomWalk( int dim, long seed ) {
+            this.dim = dim;
+            random = new SplittableRandom(seed);
+        }
+
+        public boolean next() {
+            if (x == 0) {
+                x = random.nextInt(dim) + 1;
+                y = random.nextInt(dim) + 1;
+            } else {
+                x = Math.max(1, Math.min(dim, x + random.nextInt(3) - 1));
+                y = Math.max(1, Math.min(dim, y + random.nextInt(3) - 1));
+            }
+            return true;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+    }
+
+    /**
+     * Centre of the block k (from 0) of a row or column of blocks
+     **/
+    private static int blockCentre( int k, int dim ) {
+        return Math.min(3 * k + 2, dim);
+    }
+
+    private static class Spiral implements StepSource {
+        private final int dim, blocks;
+        private int a, b, dirA, dirB, legLength, legDone, legsAtLength, visited;
+
+        Spiral( int dim ) {
+            this.dim = dim;
+            blocks = (dim + 2) / 3;
+        }
+
+        public boolean next() {
+            if (visited == blocks * blocks) {
+                visited = 0;
+            }
+            if (visited == 0) {
+                a = b = (blocks - 1) / 2;
+                dirA = 0;
+                dirB = 1;
+                legLength = 1;
+                legDone = legsAtLength = 0;
+            } else {
+                // The next block of the spiral that is inside the world
+                do {
+                    a += dirA;
+                    b += dirB;
+                    if (++legDone == legLength) {
+                        int turn = dirA;
+                        dirA = -dirB;
+                        dirB = turn;
+                        legDone = 0;
+                        if (++legsAtLength == 2) {
+                            legsAtLength = 0;
+                            legLength++;
+                        }
+                    }
+                } while (a < 0 || a >= blocks || b < 0 || b >= blocks);
+            }
+            visited++;
+            return true;
+        }
+
+        public int getX() {
+            return blockCentre(a, dim);
+        }
+
+        public int getY() {
+            return blockCentre(b, dim);
+        }
+    }
+
+    private static class Sweep implements StepSource {
+        private final int dim, blocks;
+        private int k = -1;
+
+        Sweep( int dim ) {
+            this.dim = dim;
+            blocks = (dim + 2) / 3;
+        }
+
+        public boolean next() {
+            k = (k + 1) % (blocks * blocks);
+            return true;
+        }
+
+        public int getX() {
+            return blockCentre(k / blocks, dim);
+        }
+
+        public int getY() {
+            int b = k % blocks;
+            return blockCentre((k / blocks) % 2 == 0 ? b : blocks - 1 - b, dim);
+        }
+    }
+}
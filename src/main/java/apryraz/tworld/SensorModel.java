@@ -0,0 +1,122 @@
+package apryraz.tworld;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+*  The detector of the Treasure World: the reading it gives at (x,y) for
+*  each position of the Treasure, and the positions it covers for each
+*  reading:
+*
+*     reading 1: the Treasure is at (x,y) or at one of its four neighbours
+*     reading 2: the Treasure is at one of the four diagonal neighbours
+*     reading 3: the Treasure is not in the 3x3 block around (x,y)
+*
+*  The positions covered are precomputed, already clipped to the limits of
+*  the world, as offsets to add to the lineal index (x-1)*dim + (y-1) of
+*  (x,y). There is a table for each kind of position (each corner, each
+*  side and the inside of the world), so asking for the neighbourhood of a
+*  position does not allocate anything, and the environment, the backends
+*  and the planner all use the same neighbourhoods. The model of a
+*  dimension is made once and shared; its tables must not be modified.
+**/
+public final class SensorModel {
+
+/**
+*  {dx, dy} offsets of the positions covered by each reading, in the order
+*  in which the clauses of the detector variables have always been made
+**/
+    private static final int[][][] OFFSETS = {
+            {{0, -1}, {0, 0}, {0, 1}, {-1, 0}, {1, 0}},
+            {{1, 1}, {1, -1}, {-1, -1}, {-1, 1}},
+            {{1, 1}, {1, 0}, {1, -1}, {0, -1}, {0, 0}, {0, 1}, {-1, -1}, {-1, 0}, {-1, 1}}
+    };
+
+    private static final ConcurrentHashMap<Integer, SensorModel> MODELS = new ConcurrentHashMap<>();
+
+    final int dim;
+/**
+*  tables[reading - 1][edges(x) * 4 + edges(y)]: lineal offsets of the
+*  positions covered by the reading at a position with those edges
+**/
+    private final int[][][] tables;
+
+    private SensorModel( int dim ) {
+        this.dim = dim;
+        tables = new int[OFFSETS.length][16][];
+        for (int reading = 0; reading < OFFSETS.length; reading++) {
+            for (int edges = 0; edges < 16; edges++) {
+                tables[reading][edges] = clip(OFFSETS[reading], edges >>> 2, edges & 3, dim);
+            }
+        }
+    }
+
+    /**
+     * @param dim dimension of the world
+     * @return the sensor model of the worlds of dimension dim
+     **/
+    public static SensorModel of( int dim ) {
+        if (dim < 1) {
+            throw new IllegalArgumentException("Wrong dimension of the world: " + dim);
+        }
+        return MODELS.computeIfAbsent(dim, SensorModel::new);
+    }
+
+    /**
+     * Reading of the detector used at (x,y) when the Treasure is at (tx,ty)
+     *
+     * @return 1, 2 or 3, as described above
+     **/
+    public static int reading( int tx, int ty, int x, int y ) {
+        int dx = Math.abs(tx - x), dy = Math.abs(ty - y);
+        if (dx + dy <= 1) {
+            return 1;
+        } else if (dx == 1 && dy == 1) {
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Positions of the world covered by a reading of the detector at (x,y)
+     *
+     * @param reading reading of the detector: 1, 2 or 3
+     * @param x x coordinate of the position of the detector
+     * @param y y coordinate of the position of the detector
+     * @return offsets to add to lineal(x, y), only for positions inside the
+     *         world. The array is shared and must not be modified.
+     **/
+    public int[] neighbourhood( int reading, int x, int y ) {
+        return tables[reading - 1][edges(x) * 4 + edges(y)];
+    }
+
+    /**
+     * @return lineal index (from 0) of the position (x,y)
+     **/
+    public int lineal( int x, int y ) {
+        return (x - 1) * dim + (y - 1);
+    }
+
+    /**
+     * @return 1 if c is the first row (or column) of the world, 2 if it is
+     *         the last one, 3 if it is both and 0 otherwise
+     **/
+    private int edges( int c ) {
+        return (c == 1 ? 1 : 0) | (c == dim ? 2 : 0);
+    }
+
+    private static int[] clip( int[][] offsets, int edgesX, int edgesY, int dim ) {
+        int[] lineal = new int[offsets.length];
+        int n = 0;
+        for (int[] offset : offsets) {
+            if (inside(offset[0], edgesX) && inside(offset[1], edgesY)) {
+                lineal[n++] = offset[0] * dim + offset[1];
+            }
+        }
+        return Arrays.copyOf(lineal, n);
+    }
+
+    private static boolean inside( int delta, int edges ) {
+        return !(delta < 0 && (edges & 1) != 0 || delta > 0 && (edges & 2) != 0);
+    }
+}
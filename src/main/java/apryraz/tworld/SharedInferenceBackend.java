@@ -0,0 +1,42 @@
+package apryraz.tworld;
+
+/**
+*  Inference backend of an agent that searches together with other agents:
+*  its readings go to a SharedKnowledge object, and its inference takes
+*  the positions discarded by the readings of all the agents.
+**/
+public class SharedInferenceBackend implements InferenceBackend {
+
+    SharedKnowledge knowledge;
+    final SensorModel sensor;
+
+    /**
+     * Class constructor
+     *
+     * @param knowledge the knowledge shared with the other agents
+     **/
+    public SharedInferenceBackend( SharedKnowledge knowledge ) {
+        this.knowledge = knowledge;
+        sensor = SensorModel.of(knowledge.wDim);
+    }
+
+    public void addLastConclusions() {
+        // The shared knowledge is updated as soon as each reading arrives
+    }
+
+    public void addEvidence( int x, int y, int sensorValue ) {
+        if (sensorValue == 1 || sensorValue == 2) {
+            knowledge.retainOnly(sensor.lineal(x, y), sensor.neighbourhood(sensorValue, x, y));
+        } else if (sensorValue == 3) {
+            knowledge.discard(sensor.lineal(x, y), sensor.neighbourhood(3, x, y));
+        }
+    }
+
+    public void restoreKnowledge( TFState state ) {
+        knowledge.and(state.possible);
+    }
+
+    public void performInference( TFState state ) {
+        knowledge.andInto(state);
+    }
+}
@@ -0,0 +1,125 @@
+package apryraz.tworld;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+*  Positions that can still contain the Treasure, shared by several agents
+*  that sense at the same time in the same world. It is packed like
+*  TFState (one bit per position in lineal order, 1 for "?"), but in an
+*  AtomicLongArray. Readings only ever clear bits, so each word is updated
+*  with an atomic AND, without locks, and the result does not depend on
+*  the order in which the readings of the agents arrive.
+**/
+public class SharedKnowledge {
+
+    final int wDim;
+    final AtomicLongArray possible;
+
+    /**
+     * Class constructor, with every position possible
+     *
+     * @param dim dimension of the world
+     **/
+    public SharedKnowledge( int dim ) {
+        wDim = dim;
+        TFState initial = new TFState(dim);
+        possible = new AtomicLongArray(initial.possible);
+    }
+
+    /**
+     * Keep as possible only the positions lineal + offsets[k], and discard
+     * all the other positions of the world. The words outside the span of
+     * those positions are set to zero; only the words of that span are
+     * accumulated.
+     *
+     * @param lineal lineal index of a position of the world
+     * @param offsets offsets of the positions to keep, in any number and
+     *                order. They are not checked: all of them must be
+     *                inside the world, as given by SensorModel
+     **/
+    public void retainOnly( int lineal, int[] offsets ) {
+        int first = possible.length();
+        int last = -1;
+        for (int offset : offsets) {
+            int w = (lineal + offset) >>> 6;
+            first = Math.min(first, w);
+            last = Math.max(last, w);
+        }
+        // Clearing a whole word commutes with any other AND
+        for (int w = 0; w < possible.length(); w++) {
+            if (w < first || w > last) {
+                possible.set(w, 0L);
+            }
+        }
+        for (int w = first; w <= last; w++) {
+            long mask = TFState.spanMask(w, lineal, offsets);
+            if (mask == 0) {
+                possible.set(w, 0L);
+            } else {
+                possible.getAndAccumulate(w, mask, (word, m) -> word & m);
+            }
+        }
+    }
+
+    /**
+     * Keep as possible only the positions that are also set in mask
+     *
+     * @param mask positions that can still contain the Treasure, packed as
+     *             in TFState
+     **/
+    public void and( long[] mask ) {
+        for (int w = 0; w < mask.length; w++) {
+            if (mask[w] == 0) {
+                // Clearing a whole word commutes with any other AND
+                possible.set(w, 0L);
+            } else if (mask[w] != -1L) {
+                possible.getAndAccumulate(w, mask[w], (word, m) -> word & m);
+            }
+        }
+    }
+
+    /**
+     * Discard the positions lineal + offsets[k]
+     *
+     * @param lineal lineal index of a position of the world
+     * @param offsets offsets of the positions to discard, all of them
+     *                inside the world, as given by SensorModel
+     **/
+    public void discard( int lineal, int[] offsets ) {
+        for (int offset : offsets) {
+            int bit = lineal + offset;
+            possible.getAndAccumulate(bit >>> 6, ~(1L << bit), (word, m) -> word & m);
+        }
+    }
+
+    /**
+     * Discard in state every position already discarded here
+     *
+     * @param state a state of knowledge of the same dimension
+     **/
+    public void andInto( TFState state ) {
+        for (int w = 0; w < state.possible.length; w++) {
+            state.possible[w] &= possible.get(w);
+        }
+    }
+
+    /**
+     * @return a copy of the positions that can still contain the Treasure
+     **/
+    public TFState snapshot() {
+        TFState state = new TFState(wDim);
+        andInto(state);
+        return state;
+    }
+
+    /**
+     * @return number of positions that can still contain the Treasure
+     **/
+    public int countPossible() {
+        int count = 0;
+        for (int w = 0; w < possible.length(); w++) {
+            count += Long.bitCount(possible.get(w));
+        }
+        return count;
+    }
+}
@@ -0,0 +1,110 @@
+package apryraz.tworld;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+*  Reads, one at a time, the states of a file written by
+*  StateSnapshotWriter
+**/
+public class StateSnapshotReader implements Closeable {
+
+    private final BinaryInput in;
+    private final int dim;
+    private int step;
+
+    /**
+     * Open the binary states file and read its header
+     *
+     * @param statesFile name of the binary states file
+     * @throws IOException if the file can not be opened, or it is not a
+     *                     binary states file
+     **/
+    public StateSnapshotReader( String statesFile ) throws IOException {
+        this(Paths.get(statesFile));
+    }
+
+    /**
+     * Open the binary states file and read its header
+     *
+     * @param statesFile path of the binary states file
+     * @throws IOException if the file can not be opened, or it is not a
+     *                     binary states file
+     **/
+    public StateSnapshotReader( Path statesFile ) throws IOException {
+        in = new BinaryInput(statesFile);
+        try {
+            if (in.readInt() != StateSnapshotWriter.MAGIC) {
+                throw new IOException(statesFile + " is not a binary states file");
+            }
+            int version = in.readByte();
+            if (version != StateSnapshotWriter.VERSION) {
+                throw new IOException("Unknown version " + version + " of binary states file " + statesFile);
+            }
+            dim = in.readInt();
+            if (dim < 1) {
+                throw new IOException("Wrong dimension " + dim + " in " + statesFile);
+            }
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * @return dimension of the world of the states
+     **/
+    public int getDim() {
+        return dim;
+    }
+
+    /**
+     * @return step index of the last state read
+     **/
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Read the next state of the file into state, overwriting it, so the
+     * same object can be reused for all the states
+     *
+     * @param state a state of the dimension of the file
+     * @return true if a state was read, false at the end of the file
+     * @throws IOException if the file ends in the middle of a state
+     **/
+    public boolean read( TFState state ) throws IOException {
+        if (state.wDim != dim) {
+            throw new IllegalArgumentException("State of dimension " + state.wDim
+                    + " for a file of dimension " + dim);
+        }
+        if (in.atEnd()) {
+            return false;
+        }
+        step = in.readInt();
+        long[] words = state.possible;
+        for (int w = 0; w < words.length; w++) {
+            words[w] = in.readLong();
+        }
+        int lastBits = (dim * dim) & 63;
+        if (lastBits != 0) {
+            words[words.length - 1] &= (1L << lastBits) - 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return the next state of the file, or null at its end
+     * @throws IOException if the file ends in the middle of a state
+     **/
+    public TFState read() throws IOException {
+        TFState state = new TFState(dim);
+        return read(state) ? state : null;
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,66 @@
+package apryraz.tworld;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+*  Writes a sequence of states of knowledge in the binary state format:
+*
+*     "TWSS"  version (1 byte)  dimension (int)
+*     step (int)  words of the state (long each)
+*     step (int)  words of the state (long each)
+*     ...
+*
+*  All the values are big-endian. The words of a state are the packed
+*  positions of TFState, one bit per position in lineal order (1 for "?"),
+*  so each state takes 4 + 8 * ceil(dim^2 / 64) bytes.
+**/
+public class StateSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x54575353; // "TWSS"
+    static final int VERSION = 1;
+
+    private final BinaryOutput out;
+    private final int dim;
+
+    /**
+     * Create (or overwrite) the file, and write its header
+     *
+     * @param file path of the binary states file
+     * @param dim dimension of the world of the states
+     * @throws IOException if the file can not be written
+     **/
+    public StateSnapshotWriter( Path file, int dim ) throws IOException {
+        if (dim < 1) {
+            throw new IllegalArgumentException("Wrong dimension of the world: " + dim);
+        }
+        this.dim = dim;
+        out = new BinaryOutput(file);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(dim);
+    }
+
+    /**
+     * Add a state at the end of the file
+     *
+     * @param step index of the step after which the agent had this state
+     * @param state the state, of the dimension of the file
+     * @throws IOException if the file can not be written
+     **/
+    public void write( int step, TFState state ) throws IOException {
+        if (state.wDim != dim) {
+            throw new IllegalArgumentException("State of dimension " + state.wDim
+                    + " in a file of dimension " + dim);
+        }
+        out.writeInt(step);
+        for (long word : state.possible) {
+            out.writeLong(word);
+        }
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,176 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+*  Reads the steps of a steps file as they are needed, in chunks, without
+*  making any String nor Position objects. The file has steps "x,y"
+*  separated by spaces, tabs or line breaks, in any number of lines:
+*
+*     x1,y1 x2,y2 ...
+*     xk,yk ...  xn,yn
+*
+*  The file is closed when the last step wanted has been read, when the
+*  file ends or when an error is found.
+**/
+public class StepFileReader implements StepSource {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final String fileName;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+/**
+*  Steps still to be read, line of the file being read, and steps read
+**/
+    private int remaining, line, numRead;
+    private int x, y;
+/**
+*  Value of the last number read by readCoordinate
+**/
+    private int lastCoordinate;
+    private boolean closed;
+
+    /**
+     * Open the steps file and prepare to read its first maxSteps steps
+     *
+     * @param stepsFile name of the steps file
+     * @param maxSteps maximum number of steps to read
+     * @throws IOException if the file can not be opened
+     **/
+    public StepFileReader( String stepsFile, int maxSteps ) throws IOException {
+        this(Paths.get(stepsFile), maxSteps);
+    }
+
+    /**
+     * Open the steps file and prepare to read its first maxSteps steps
+     *
+     * @param stepsFile path of the steps file
+     * @param maxSteps maximum number of steps to read
+     * @throws IOException if the file can not be opened
+     **/
+    public StepFileReader( Path stepsFile, int maxSteps ) throws IOException {
+        fileName = stepsFile.toString();
+        channel = FileChannel.open(stepsFile, StandardOpenOption.READ);
+        buffer.limit(0);
+        remaining = maxSteps;
+        line = 1;
+    }
+
+    public boolean next() throws IOException {
+        if (remaining <= 0 || closed) {
+            close();
+            return false;
+        }
+        try {
+            int c = read();
+            while (isBlank(c)) {
+                c = read();
+            }
+            if (c < 0) {
+                close();
+                return false;
+            }
+            c = readCoordinate(c);
+            x = lastCoordinate;
+            if (c != ',') {
+                throw malformed("expected ',' after the x coordinate");
+            }
+            c = readCoordinate(read());
+            y = lastCoordinate;
+            if (c >= 0 && !isBlank(c)) {
+                throw malformed("unexpected character '" + (char) c + "'");
+            }
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+        numRead++;
+        remaining--;
+        return true;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return number of steps read so far
+     **/
+    public int getNumRead() {
+        return numRead;
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    /**
+     * Read a non negative number, starting with the character c, and leave
+     * it in lastCoordinate
+     *
+     * @return the first character after the number
+     **/
+    private int readCoordinate( int c ) throws IOException {
+        if (c < '0' || c > '9') {
+            throw malformed(c < 0 ? "unexpected end of file" : "expected a digit, found '" + (char) c + "'");
+        }
+        int value = 0;
+        while (c >= '0' && c <= '9') {
+            if (value > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                throw malformed("coordinate too big");
+            }
+            value = value * 10 + (c - '0');
+            c = read();
+        }
+        lastCoordinate = value;
+        return c;
+    }
+
+    /**
+     * @return next byte of the file, or -1 at its end
+     * @throws IOException if the byte is not ASCII (steps files are ASCII)
+     **/
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip();
+            if (n < 0) {
+                return -1;
+            }
+        }
+        int c = buffer.get() & 0xFF;
+        if (c >= 0x80) {
+            throw malformed("non ASCII byte 0x" + Integer.toHexString(c));
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private static boolean isBlank( int c ) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private IOException malformed( String reason ) {
+        return new IOException("Malformed step " + (numRead + 1) + " at line " + line
+                + " of " + fileName + ": " + reason);
+    }
+}
@@ -0,0 +1,198 @@
+package apryraz.tworld;
+
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+*  Measures of the steps of a TreasureFinder agent: the time taken by each
+*  phase of every step, and the work of the solver (questions asked and
+*  SAT4J statistics). It keeps a histogram of the latencies of each phase,
+*  with only the steps that performed it (after stopWhenLocated, the steps
+*  skip SENSE, EVIDENCE and INFERENCE), and sends the record of every step to its listeners (see MetricsWriter).
+*  An agent only measures its steps after TreasureFinder.enableMetrics().
+**/
+public class StepMetrics {
+
+/**
+*  Phases of a step, in the order runNextStep performs them
+**/
+    public enum Phase {
+        CONCLUSIONS,  // adding the conclusions of the previous step
+        MOVE,         // moving to the next position
+        SENSE,        // using the detector
+        EVIDENCE,     // adding the reading to the inference backend
+        INFERENCE,    // finding the positions that can not be the Treasure
+        EVENTS        // sending the events and the state to the sink
+    }
+
+/**
+*  SAT4J statistics kept for each step
+**/
+    static final String[] SOLVER_STATS = {"conflicts", "propagations", "decisions"};
+
+    /**
+     * Measures of one step. Listeners receive the same object for every
+     * step, so they must copy what they want to keep.
+     **/
+    public static final class StepRecord {
+        int step;
+        final long[] phaseNanos = new long[Phase.values().length];
+        final boolean[] phaseRan = new boolean[Phase.values().length];
+        long totalNanos, solverCalls;
+        final long[] solverStats = new long[SOLVER_STATS.length];
+
+        public int getStep() {
+            return step;
+        }
+
+        /**
+         * @return time taken by the phase, 0 if the step skipped it
+         **/
+        public long getPhaseNanos( Phase phase ) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        /**
+         * @return true if the step performed the phase
+         **/
+        public boolean hasPhase( Phase phase ) {
+            return phaseRan[phase.ordinal()];
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * @return questions asked to the solver during the step
+         **/
+        public long getSolverCalls() {
+            return solverCalls;
+        }
+
+        public long getConflicts() {
+            return solverStats[0];
+        }
+
+        public long getPropagations() {
+            return solverStats[1];
+        }
+
+        public long getDecisions() {
+            return solverStats[2];
+        }
+    }
+
+    /**
+     * Receives the record of every step, just after the step
+     **/
+    public interface Listener {
+        void step( StepRecord record );
+    }
+
+    private final InferenceBackend inference;
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+    private final LatencyHistogram steps = new LatencyHistogram();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final StepRecord record = new StepRecord();
+    private long lastSolverCalls, totalSolverCalls;
+    private final long[] lastSolverStats = new long[SOLVER_STATS.length];
+    private final long[] totalSolverStats = new long[SOLVER_STATS.length];
+
+    /**
+     * Class constructor
+     *
+     * @param inference inference backend of the agent, where the work of
+     *                  the solver is taken from
+     **/
+    StepMetrics( InferenceBackend inference ) {
+        this.inference = inference;
+        for (int p = 0; p < phases.length; p++) {
+            phases[p] = new LatencyHistogram();
+        }
+        lastSolverCalls = inference.getSolverCalls();
+        readSolverStats(lastSolverStats);
+    }
+
+    /**
+     * @param listener receives the record of every step from now on
+     **/
+    public void addListener( Listener listener ) {
+        listeners.add(listener);
+    }
+
+    public void removeListener( Listener listener ) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Start measuring a step
+     **/
+    void startStep() {
+        java.util.Arrays.fill(record.phaseNanos, 0);
+        java.util.Arrays.fill(record.phaseRan, false);
+    }
+
+    /**
+     * Add the time of a phase of the current step
+     **/
+    void record( Phase phase, long nanos ) {
+        record.phaseNanos[phase.ordinal()] += nanos;
+        record.phaseRan[phase.ordinal()] = true;
+    }
+
+    /**
+     * Finish the current step: add the times of the phases it performed to
+     * their histograms, and the time of the whole step to its own, take the
+     * work of the solver since the previous step, and send the record to
+     * the listeners
+     *
+     * @param step number of steps performed by the agent
+     **/
+    synchronized void endStep( int step ) {
+        record.step = step;
+        record.totalNanos = 0;
+        for (int p = 0; p < phases.length; p++) {
+            if (record.phaseRan[p]) {
+                phases[p].record(record.phaseNanos[p]);
+                record.totalNanos += record.phaseNanos[p];
+            }
+        }
+        steps.record(record.totalNanos);
+
+        long solverCalls = inference.getSolverCalls();
+        record.solverCalls = solverCalls - lastSolverCalls;
+        totalSolverCalls += record.solverCalls;
+        lastSolverCalls = solverCalls;
+        long[] solverStats = new long[SOLVER_STATS.length];
+        readSolverStats(solverStats);
+        for (int s = 0; s < solverStats.length; s++) {
+            record.solverStats[s] = solverStats[s] - lastSolverStats[s];
+            totalSolverStats[s] += record.solverStats[s];
+            lastSolverStats[s] = solverStats[s];
+        }
+
+        for (Listener listener : listeners) {
+            listener.step(record);
+        }
+    }
+
+    private void readSolverStats( long[] into ) {
+        Map<String, Number> stats = inference.getSolverStats();
+        for (int s = 0; s < SOLVER_STATS.length; s++) {
+            Number value = stats.get(SOLVER_STATS[s]);
+            into[s] = value == null ? 0 : value.longValue();
+        }
+    }
+
+    /**
+     * @return a copy of the measures of all the steps so far
+     **/
+    public synchronized MetricsSnapshot snapshot() {
+        LatencyHistogram[] phaseCopies = new LatencyHistogram[phases.length];
+        for (int p = 0; p < phases.length; p++) {
+            phaseCopies[p] = phases[p].copy();
+        }
+        return new MetricsSnapshot(steps.copy(), phaseCopies, totalSolverCalls, totalSolverStats.clone());
+    }
+}
@@ -0,0 +1,89 @@
+package apryraz.tworld;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+*  Sequence of steps (positions to move to) of the TreasureFinder agent,
+*  read one at a time, so a trajectory does not need to be kept in memory.
+*  After next() returns true, getX() and getY() give the coordinates of the
+*  new step.
+**/
+public interface StepSource extends Closeable {
+
+    /**
+     * Advance to the next step
+     *
+     * @return true if there is a next step, false at the end of the sequence
+     * @throws IOException if the step can not be read, or it is malformed
+     **/
+    boolean next() throws IOException;
+
+    /**
+     * @return x coordinate of the current step
+     **/
+    int getX();
+
+    /**
+     * @return y coordinate of the current step
+     **/
+    int getY();
+
+    /**
+     * Release the resources of the source. By default, there are none.
+     **/
+    default void close() throws IOException {
+    }
+
+    /**
+     * Open a steps file, in the text format of StepFileReader or in the
+     * binary format of BinaryStepWriter
+     *
+     * @param stepsFile name of the steps file
+     * @param maxSteps maximum number of steps to read
+     * @return a source that reads the steps of the file
+     * @throws IOException if the file can not be opened
+     **/
+    static StepSource open( String stepsFile, int maxSteps ) throws IOException {
+        Path file = Paths.get(stepsFile);
+        boolean binary = false;
+        if (Files.size(file) >= 4) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                binary = in.readInt() == BinaryStepWriter.MAGIC;
+            }
+        }
+        return binary ? new BinaryStepReader(file, maxSteps) : new StepFileReader(file, maxSteps);
+    }
+
+    /**
+     * @param steps the positions to move to, in order
+     * @return a source that gives the positions of the list
+     **/
+    static StepSource of( List<Position> steps ) {
+        return new StepSource() {
+            int next = 0;
+            Position current;
+
+            public boolean next() {
+                if (next >= steps.size()) {
+                    return false;
+                }
+                current = steps.get(next++);
+                return true;
+            }
+
+            public int getX() {
+                return current.x;
+            }
+
+            public int getY() {
+                return current.y;
+            }
+        };
+    }
+}
@@ -1,57 +1,239 @@
 package apryraz.tworld;
 
+import java.util.Arrays;
+
 public class TFState {
   /**
-
-
+  *  State of knowledge about the position of the Treasure. Every position
+  *  is either "?" (the Treasure can be there) or "X" (it can not). The
+  *  positions are packed one bit per position (1 for "?") in lineal order:
+  *  position (i,j) is the bit (i-1)*wDim + (j-1), the same order used for
+  *  the variables of the formula. Masks given to and/andNot/or use this
+  *  same layout, and must have numWords() words.
   **/
 
   int wDim;
-  String [][] matrix;
+  long [] possible;
 
   public TFState( int dim ) {
     wDim = dim;
-    matrix = new String[wDim][wDim];
+    possible = new long[(wDim * wDim + 63) >>> 6];
     initializeState();
   }
 
+  /**
+  *  @return a new state with the same positions discarded as this one
+  **/
+  public TFState copy() {
+      TFState other = new TFState(wDim);
+      System.arraycopy(possible, 0, other.possible, 0, possible.length);
+      return other;
+  }
+
   public void initializeState()
   {
-      for (int i = 0; i < wDim; i++) {
-          for (int j = 0; j < wDim; j++) {
-              matrix[i][j] = "?";
-          }
+      Arrays.fill(possible, -1L);
+      int lastBits = (wDim * wDim) & 63;
+      if (lastBits != 0) {
+          possible[possible.length - 1] = (1L << lastBits) - 1;
       }
   }
 
+  /**
+  *  @throws IndexOutOfBoundsException if (i,j) is out of the world
+  **/
   public void set( int i, int j, String val ) {
+         int bit = bit(i, j);
+         if (val.equals("?")) {
+             possible[bit >>> 6] |= 1L << bit;
+         } else if (val.equals("X")) {
+             possible[bit >>> 6] &= ~(1L << bit);
+         } else {
+             throw new IllegalArgumentException("Unknown value for a position: " + val);
+         }
+  }
 
-         matrix[i-1][j-1] = val;
+  public String get( int i, int j ) {
+         return isPossible(i, j) ? "?" : "X";
   }
 
-  public boolean equals(Object obj){
-       TFState tfstate2 = (TFState) obj;
-       boolean status = true;
+  /**
+  *  @throws IndexOutOfBoundsException if (i,j) is out of the world
+  **/
+  public boolean isPossible( int i, int j ) {
+         int bit = bit(i, j);
+         return (possible[bit >>> 6] & (1L << bit)) != 0;
+  }
 
-       for (int i = 0; i < wDim; i++) {
-           for (int j = 0; j < wDim; j++) {
-               if (! matrix[i][j].equals( tfstate2.matrix[i][j]) )
-                 status = false;
-           }
-       }
+  /**
+  *  @param lineal lineal index of a position of the world, not checked:
+  *                it must be from 0 to wDim*wDim - 1
+  **/
+  public boolean isPossible( int lineal ) {
+         return (possible[lineal >>> 6] & (1L << lineal)) != 0;
+  }
 
-       return status;
+  /**
+  *  @return bit of the position (i,j), if it is inside the world. Without
+  *          this check, a wrong coordinate would silently use the bit of
+  *          another position.
+  **/
+  private int bit( int i, int j ) {
+      if (i < 1 || i > wDim || j < 1 || j > wDim) {
+          throw new IndexOutOfBoundsException("Position out of the world: " + i + "," + j);
+      }
+      return (i-1) * wDim + (j-1);
+  }
+
+  /**
+  *  Keep as possible only the positions lineal + offsets[k] that were
+  *  already possible, and discard all the other positions of the world.
+  *  The words outside the span of the kept positions are set to zero, and
+  *  only the words of that span are masked.
+  *
+  *  @param lineal lineal index of a position of the world
+  *  @param offsets offsets of the positions to keep, in any number and
+  *                 order. They are not checked: all of them must be inside
+  *                 the world, as given by SensorModel
+  **/
+  public void retainOnly( int lineal, int[] offsets ) {
+      int first = possible.length;
+      int last = -1;
+      for (int offset : offsets) {
+          int w = (lineal + offset) >>> 6;
+          first = Math.min(first, w);
+          last = Math.max(last, w);
+      }
+      if (last < 0) {
+          Arrays.fill(possible, 0L);
+          return;
+      }
+      Arrays.fill(possible, 0, first, 0L);
+      Arrays.fill(possible, last + 1, possible.length, 0L);
+      for (int w = first; w <= last; w++) {
+          possible[w] &= spanMask(w, lineal, offsets);
+      }
+  }
+
+  /**
+  *  @return bits of the word w with some of the positions lineal + offsets[k]
+  **/
+  static long spanMask( int w, int lineal, int[] offsets ) {
+      long mask = 0;
+      for (int offset : offsets) {
+          int bit = lineal + offset;
+          if (bit >>> 6 == w) {
+              mask |= 1L << bit;
+          }
+      }
+      return mask;
+  }
+
+  /**
+  *  Discard the positions lineal + offsets[k]
+  *
+  *  @param lineal lineal index of a position of the world
+  *  @param offsets offsets of the positions to discard, all of them inside
+  *                 the world, as given by SensorModel
+  **/
+  public void discard( int lineal, int[] offsets ) {
+      for (int offset : offsets) {
+          int bit = lineal + offset;
+          possible[bit >>> 6] &= ~(1L << bit);
+      }
+  }
+
+  /**
+  *  @return number of words of the masks accepted by and/andNot/or
+  **/
+  public int numWords() {
+      return possible.length;
+  }
+
+  /**
+  *  Keep as possible only the positions that are also set in mask
+  *
+  *  @param mask positions that can still contain the Treasure
+  **/
+  public void and( long[] mask ) {
+      for (int w = 0; w < possible.length; w++) {
+          possible[w] &= mask[w];
+      }
+  }
+
+  /**
+  *  Discard all the positions set in mask
+  *
+  *  @param mask positions that can not contain the Treasure
+  **/
+  public void andNot( long[] mask ) {
+      for (int w = 0; w < possible.length; w++) {
+          possible[w] &= ~mask[w];
+      }
+  }
+
+  /**
+  *  Mark again as possible all the positions set in mask
+  *
+  *  @param mask positions that can contain the Treasure
+  **/
+  public void or( long[] mask ) {
+      for (int w = 0; w < possible.length; w++) {
+          possible[w] |= mask[w];
+      }
+  }
+
+  /**
+  *  @return number of positions that can still contain the Treasure
+  **/
+  public int countPossible() {
+      int count = 0;
+      for (long word : possible) {
+          count += Long.bitCount(word);
+      }
+      return count;
+  }
+
+  /**
+  *  @return lineal index of the first position that can still contain the
+  *          Treasure, or -1 if there is none
+  **/
+  public int firstPossible() {
+      for (int w = 0; w < possible.length; w++) {
+          if (possible[w] != 0) {
+              return (w << 6) + Long.numberOfTrailingZeros(possible[w]);
+          }
+      }
+      return -1;
+  }
+
+  public boolean equals(Object obj){
+       if (this == obj) {
+           return true;
+       }
+       if (!(obj instanceof TFState)) {
+           return false;
+       }
+       TFState tfstate2 = (TFState) obj;
+       return wDim == tfstate2.wDim && Arrays.equals(possible, tfstate2.possible);
    }
 
+  public int hashCode() {
+       return 31 * wDim + Arrays.hashCode(possible);
+  }
+
   public void printState()
   {
       System.out.println("FINDER => Printing Treasure world matrix");
-      for (int i = wDim-1; i > -1; i--) {
-          System.out.print("\t#\t");
-          for (int j = 0; j < wDim; j++) {
-              System.out.print(matrix[i][j] + " ");
+      StringBuilder row = new StringBuilder(2 * wDim + 8);
+      for (int i = wDim; i >= 1; i--) {
+          row.setLength(0);
+          row.append("\t#\t");
+          for (int j = 1; j <= wDim; j++) {
+              row.append(isPossible(i, j) ? '?' : 'X').append(' ');
           }
-          System.out.println("\t#");
+          row.append("\t#");
+          System.out.println(row);
       }
   }
 
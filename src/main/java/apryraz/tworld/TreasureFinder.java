@@ -2,19 +2,15 @@
 
 package apryraz.tworld;
 
-import org.sat4j.core.VecInt;
-import org.sat4j.minisat.SolverFactory;
 import org.sat4j.specs.ContradictionException;
-import org.sat4j.specs.ISolver;
 import org.sat4j.specs.TimeoutException;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static java.lang.System.exit;
-
 
 /**
 *  This agent performs a sequence of movements, and after each
@@ -22,24 +18,26 @@ import static java.lang.System.exit;
 *  and then the outcome from the smell sensor, to try to locate
 *  the position of Treasure
 *
+*  Closing the agent closes its source of steps and gives back the
+*  resources of its inference backend (solvers, threads); the agent can
+*  not be used after that.
+*
 **/
-public class TreasureFinder {
+public class TreasureFinder implements AutoCloseable {
+
+    static final int CHECKPOINT_MAGIC = 0x54574350; // "TWCP"
+    static final int CHECKPOINT_VERSION = 1;
 
 
 /**
-  * The list of steps to perform
+  * The steps to perform, read as they are needed
 **/
-    ArrayList<Position> listOfSteps;
+    StepSource listOfSteps;
 /**
 * index to the next movement to perform, and total number of movements
 **/
     int idNextStep, numMovements;
 /**
-*  Array of clauses that represent conclusiones obtained in the last
-* call to the inference function, but rewritten using the "past" variables
-**/
-    ArrayList<VecInt> futureToPast = new ArrayList<VecInt>();
-/**
 * the current state of knowledge of the agent (what he knows about
 * every position of the world)
 **/
@@ -47,62 +45,103 @@ public class TreasureFinder {
 /**
 *   The object that represents the interface to the Treasure World
 **/
-   TreasureWorldEnv EnvAgent;
+   Environment EnvAgent;
+/**
+*   Where the trace of the agent and its states of knowledge are sent
+**/
+   EventSink events;
 /**
-*   SAT solver object that stores the logical boolean formula with the rules
-*   and current knowledge about not possible locations for Treasure
+*   Message objects reused for every question sent to the environment
+*   and for its answers
 **/
-    ISolver solver;
+   AMessage request = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+   AMessage answer = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+/**
+*   The reasoning part of the agent, that decides which positions can not
+*   contain the Treasure
+**/
+    InferenceBackend inference;
 /**
 *   Agent position in the world
 **/
     int agentX, agentY;
 /**
-*  Dimension of the world and total size of the world (Dim^2)
+*  Position of the Treasure, once it is the only possible position
+*  (0,0 until then)
 **/
-    int WorldDim, WorldLinealDim;
-
+    int treasureX, treasureY;
+/**
+*  Whether the steps after locating the Treasure skip the detector and
+*  the inference
+**/
+    boolean stopWhenLocated;
+/**
+*  Measures of the steps, or null when they are not measured
+**/
+    StepMetrics metrics;
 /**
-*    This set of variables CAN be use to mark the beginning of different subsets
-*    of variables in your propositional formula (but you may have more sets of
-*    variables in your solution or use totally different variables to identify
-     your different subsets of variables).
+*  Dimension of the world and total size of the world (Dim^2)
 **/
-    int TreasurePastOffset; // Offset for the variables of the past state of the Treasure
-    int TreasureFutureOffset; // Offset for the variables of the future state of the Treasure
-    int DetectorOffset1; // Offset for the variables of the past state of the Detector
-    int DetectorOffset2; // Offset for the variables of the future state of the Detector
-    int DetectorOffset3; // Offset for the variables of the future state of the Detector
-    int actualLiteral; // Variable for creating literals in the clauses
+    int WorldDim, WorldLinealDim;
 
 
    /**
      The class constructor must create the initial Boolean formula with the
-     rules of the Treasure World, initialize the variables for indicating
-     that we do not have yet any movements to perform, make the initial state.
+     rules of the Treasure World (in a SatInferenceBackend), initialize the
+     variables for indicating that we do not have yet any movements to
+     perform, make the initial state.
 
      @param WDim the dimension of the Treasure World
 
    **/
     public TreasureFinder(int WDim)
     {
+        this(WDim, new ConsoleEventSink(EventSink.Level.DEBUG));
+    }
+
+   /**
+     Class constructor that sends the trace and the states of the agent to
+     the given sink instead of the console.
+
+     @param WDim the dimension of the Treasure World
+     @param events where the events of the agent are sent (EventSink.NONE
+                   for a quiet agent)
+
+   **/
+    public TreasureFinder(int WDim, EventSink events)
+    {
+        this(WDim, events, new SatInferenceBackend(WDim));
+    }
+
+   /**
+     Class constructor with the inference backend to use: the SAT formula
+     (SatInferenceBackend) or the bitset of possible positions
+     (BitsetInferenceBackend).
+
+     @param WDim the dimension of the Treasure World
+     @param events where the events of the agent are sent (EventSink.NONE
+                   for a quiet agent)
+     @param inference inference backend for a world of dimension WDim
+
+   **/
+    public TreasureFinder(int WDim, EventSink events, InferenceBackend inference)
+    {
+        this.events = events;
+        this.inference = inference;
 
         WorldDim = WDim;
-        WorldLinealDim = WorldDim * WorldDim;
-
-        try {
-            solver = buildGamma();
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(TreasureFinder.class.getName()).log(Level.SEVERE, null, ex);
-        } catch (IOException | ContradictionException ex) {
-            Logger.getLogger(TreasureFinder.class.getName()).log(Level.SEVERE, null, ex);
-        }
+        WorldLinealDim = Math.multiplyExact(WorldDim, WorldDim);
+
         numMovements = 0;
         idNextStep = 0;
-        System.out.println("STARTING TREASURE FINDER AGENT...");
+        if (events.isEnabled(EventSink.Level.INFO)) {
+            events.event(EventSink.Level.INFO, "STARTING TREASURE FINDER AGENT...");
+        }
 
         tfstate = new TFState(WorldDim);  // Initialize state (matrix) of knowledge with '?'
-        tfstate.printState();
+        if (events.wantsStates()) {
+            events.state(0, tfstate);
+        }
     }
 
     /**
@@ -111,50 +150,234 @@ public class TreasureFinder {
       answers to them. This function must be called before trying to perform any
       steps with the agent.
 
-      @param environment the Environment object
+      @param environment the Environment object (a TreasureWorldEnv, or an
+                         EnvironmentClient for an environment in another process)
 
     **/
-    public void setEnvironment( TreasureWorldEnv environment ) {
+    public void setEnvironment( Environment environment ) {
          EnvAgent =  environment;
     }
 
 
     /**
-      Load a sequence of steps to be performed by the agent. This sequence will
-      be stored in the listOfSteps ArrayList of the agent.  Steps are represented
-      as objects of the class Position.
+      Load a sequence of steps to be performed by the agent. The steps are
+      not read all at once: each one is read from the file when the agent
+      moves to it, so the file can be of any size.
 
       @param numSteps number of steps to read from the file
-      @param stepsFile the name of the text file with the line that contains
-                       the sequence of steps: x1,y1 x2,y2 ...  xn,yn
+      @param stepsFile the name of the text file with the sequence of steps:
+                       x1,y1 x2,y2 ...  xn,yn (in one or more lines), or of
+                       a binary steps file (see BinaryStepWriter)
+      @throws IOException if the file can not be opened
 
     **/
-    public void loadListOfSteps( int numSteps, String stepsFile )
+    public void loadListOfSteps( int numSteps, String stepsFile ) throws IOException
     {
-        String[] stepsList;
-        String steps = ""; // Prepare a list of movements to try with the FINDER Agent
-        try {
-            BufferedReader br = new BufferedReader(new FileReader(stepsFile));
-            System.out.println("STEPS FILE OPENED ...");
-            steps = br.readLine();
-            br.close();
-        } catch (FileNotFoundException ex) {
-            System.out.println("MSG. => Steps file not found");
-            exit(1);
-        } catch (IOException ex) {
-            Logger.getLogger(TreasureFinder.class.getName()).log(Level.SEVERE, null, ex);
-            exit(2);
-        }
-        stepsList = steps.split(" ");
-        listOfSteps = new ArrayList<Position>(numSteps);
-        for (int i = 0 ; i < numSteps ; i++ ) {
-            String[] coords = stepsList[i].split(",");
-            listOfSteps.add(new Position(Integer.parseInt(coords[0]), Integer.parseInt(coords[1])));
+        setStepSource(numSteps, StepSource.open(stepsFile, numSteps));
+        if (events.isEnabled(EventSink.Level.INFO)) {
+            events.event(EventSink.Level.INFO, "STEPS FILE OPENED ...");
         }
-        numMovements = listOfSteps.size(); // Initialization of numMovements
+    }
+
+    /**
+      Set the sequence of steps to be performed by the agent, instead of
+      loading it from a file with loadListOfSteps.
+
+      @param steps the positions to move to, in order
+
+    **/
+    public void setListOfSteps( List<Position> steps )
+    {
+        setStepSource(steps.size(), StepSource.of(steps));
+    }
+
+    /**
+      Let the agent choose its own steps, with an InformationGainPlanner,
+      instead of following a list of steps.
+
+      @param numSteps number of steps to perform
+      @param maxMove maximum number of positions the agent can move in each
+                     coordinate at each step (0 for no limit)
+
+    **/
+    public void planSteps( int numSteps, int maxMove )
+    {
+        setStepSource(numSteps, new InformationGainPlanner(this, maxMove));
+    }
+
+    /**
+      Set the source of the steps to be performed by the agent. The source
+      of the previous steps, if any, is closed.
+
+      @param numSteps number of steps to take from the source
+      @param steps the source of the positions to move to
+
+    **/
+    public void setStepSource( int numSteps, StepSource steps )
+    {
+        closeSteps();
+        listOfSteps = steps;
+        numMovements = numSteps;
         idNextStep = 0;
     }
 
+    /**
+      Save the progress of the agent to a checkpoint file: the step cursor,
+      the position of the agent and its state of knowledge (the packed words
+      of TFState). It should be called between two steps.
+
+      @param checkpoint path of the checkpoint file to write
+      @throws IOException if the file can not be written
+
+    **/
+    public void saveCheckpoint( Path checkpoint ) throws IOException
+    {
+        try (BinaryOutput out = new BinaryOutput(checkpoint)) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeByte(CHECKPOINT_VERSION);
+            out.writeInt(WorldDim);
+            out.writeInt(idNextStep);
+            out.writeInt(numMovements);
+            out.writeInt(agentX);
+            out.writeInt(agentY);
+            for (long word : tfstate.possible) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    /**
+      Continue a run saved with saveCheckpoint. The agent must be new (no
+      steps performed yet) and have its steps loaded; the steps already
+      performed in the checkpoint are skipped. Instead of performing them
+      again, the positions discarded in the checkpoint are given to the
+      inference backend as conclusions.
+
+      @param checkpoint path of the checkpoint file to read
+      @throws IOException if the file can not be read, it is not a checkpoint
+                          of a world of this dimension, or the steps end
+                          before the step of the checkpoint
+      @throws ContradictionException if the checkpoint contradicts the knowledge
+                                     of the agent
+
+    **/
+    public void resumeFrom( Path checkpoint ) throws IOException, ContradictionException
+    {
+        if (idNextStep != 0) {
+            throw new IllegalStateException("A run can only be resumed before the first step");
+        }
+        int step, steps, x, y;
+        TFState saved = new TFState(WorldDim);
+        try (BinaryInput in = new BinaryInput(checkpoint)) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readByte() != CHECKPOINT_VERSION) {
+                throw new IOException(checkpoint + " is not a checkpoint file");
+            }
+            int dim = in.readInt();
+            if (dim != WorldDim) {
+                throw new IOException("Checkpoint of a world of dimension " + dim
+                        + " for an agent of dimension " + WorldDim);
+            }
+            step = in.readInt();
+            steps = in.readInt();
+            x = in.readInt();
+            y = in.readInt();
+            for (int w = 0; w < saved.possible.length; w++) {
+                saved.possible[w] = in.readLong();
+            }
+        }
+        if (listOfSteps == null || step > numMovements) {
+            throw new IOException("Checkpoint at step " + step + " of " + steps
+                    + ", but the agent has " + numMovements + " steps");
+        }
+        for (int i = 0; i < step; i++) {
+            if (!listOfSteps.next()) {
+                throw new EOFException("The steps ended after " + i + " of the "
+                        + step + " steps of the checkpoint");
+            }
+        }
+
+        inference.restoreKnowledge(saved);
+        tfstate.and(saved.possible);
+        idNextStep = step;
+        agentX = x;
+        agentY = y;
+        if (events.isEnabled(EventSink.Level.INFO)) {
+            events.event(EventSink.Level.INFO, "RESUMED AT STEP " + idNextStep);
+        }
+        checkLocated();
+    }
+
+    /**
+      Choose what the agent does after it has located the Treasure: by
+      default it keeps sensing and asking the inference questions at every
+      step; with stop set, the next steps only move the agent, so a run
+      that continues after locating the Treasure costs no more inference.
+
+      @param stop whether to skip the detector and the inference once the
+                  Treasure has been located
+
+    **/
+    public void setStopWhenLocated( boolean stop )
+    {
+        stopWhenLocated = stop;
+    }
+
+    /**
+      Start measuring the time of each phase of the steps and the work of
+      the solver. Without calling this, the steps measure nothing.
+
+      @return the measures of the steps performed from now on
+
+    **/
+    public StepMetrics enableMetrics()
+    {
+        if (metrics == null) {
+            metrics = new StepMetrics(inference);
+        }
+        return metrics;
+    }
+
+    /**
+     *    @return true if all the positions but one have been discarded
+    **/
+    public boolean isTreasureLocated()
+    {
+        return treasureX != 0;
+    }
+
+    /**
+     *    @return x coordinate of the located Treasure, or 0
+    **/
+    public int getTreasureX()
+    {
+        return treasureX;
+    }
+
+    /**
+     *    @return y coordinate of the located Treasure, or 0
+    **/
+    public int getTreasureY()
+    {
+        return treasureY;
+    }
+
+    /**
+     *    Check whether only one position remains possible, and in that case
+     *    keep it as the position of the Treasure and send the located event
+    **/
+    void checkLocated()
+    {
+        if (treasureX == 0 && tfstate.countPossible() == 1) {
+            int lineal = tfstate.firstPossible();
+            treasureX = lineal / WorldDim + 1;
+            treasureY = lineal % WorldDim + 1;
+            if (events.isEnabled(EventSink.Level.INFO)) {
+                events.event(EventSink.Level.INFO, "FINDER => TREASURE LOCATED AT : (" + treasureX + "," + treasureY + ")");
+            }
+            events.located(idNextStep, treasureX, treasureY);
+        }
+    }
+
     /**
      *    Returns the current state of the agent.
      *
@@ -175,28 +398,74 @@ public class TreasureFinder {
     **/
     public void runNextStep() throws IOException,  ContradictionException, TimeoutException
     {
-          
+          long mark = startStep();
+
           // Add the conclusions obtained in the previous step
           // but as clauses that use the "past" variables
           addLastFutureClausesToPastClauses();
+          mark = lap(StepMetrics.Phase.CONCLUSIONS, mark);
 
           // Ask to move, and check whether it was successful          
           processMoveAnswer( moveToNext( ) );
-
-
-          // Next, use Detector sensor to discover new information
-          processDetectorSensorAnswer( DetectsAt() );       
-
-          // Perform logical consequence questions for all the positions
-          // of the Treasure World
-          performInferenceQuestions();
-          System.out.println("END OF STEP " + idNextStep);
-          if( idNextStep == numMovements){
-              System.out.println("END OF MOVEMENTS");
+          mark = lap(StepMetrics.Phase.MOVE, mark);
+
+          if (!(stopWhenLocated && isTreasureLocated())) {
+              // Next, use Detector sensor to discover new information
+              AMessage detection = DetectsAt();
+              mark = lap(StepMetrics.Phase.SENSE, mark);
+              processDetectorSensorAnswer( detection );
+              mark = lap(StepMetrics.Phase.EVIDENCE, mark);
+
+              // Perform logical consequence questions for all the positions
+              // of the Treasure World
+              performInferenceQuestions();
+              checkLocated();
+              mark = lap(StepMetrics.Phase.INFERENCE, mark);
+          }
+          if (events.isEnabled(EventSink.Level.INFO)) {
+              events.event(EventSink.Level.INFO, "END OF STEP " + idNextStep);
+              if( idNextStep == numMovements){
+                  events.event(EventSink.Level.INFO, "END OF MOVEMENTS");
+              }
+          }
+          if (events.wantsStates()) {
+              events.state(idNextStep, tfstate);      // Send the resulting knowledge matrix
+          }
+          if (metrics != null) {
+              lap(StepMetrics.Phase.EVENTS, mark);
+              metrics.endStep(idNextStep);
           }
-          tfstate.printState();      // Print the resulting knowledge matrix
     }
 
+    /**
+    *   Start measuring a step, if the metrics are enabled
+    *
+    *   @return the time when the step starts, or 0 without metrics
+    **/
+    private long startStep()
+    {
+        if (metrics == null) {
+            return 0;
+        }
+        metrics.startStep();
+        return System.nanoTime();
+    }
+
+    /**
+    *   Add the time since mark to a phase of the step, if the metrics are
+    *   enabled
+    *
+    *   @return the time when the next phase starts, or 0 without metrics
+    **/
+    private long lap( StepMetrics.Phase phase, long mark )
+    {
+        if (metrics == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        metrics.record(phase, now - mark);
+        return now;
+    }
 
     /**
     *   Ask the agent to move to the next position, by sending an appropriate
@@ -204,19 +473,25 @@ public class TreasureFinder {
     *   will be returned to the caller of the function.
     *
     *   @return the answer message from the environment, that will tell whether the
-    *           movement was successful or not.
+    *           movement was successful or not. The same object is reused for
+    *           the next answers.
+    *   @throws IOException if the next step can not be read, or the steps end
+    *           before the number of steps given
     **/
-    public AMessage moveToNext()
+    public AMessage moveToNext() throws IOException
     {
-        Position nextPosition;
-
         if (idNextStep < numMovements) {
-            nextPosition = listOfSteps.get(idNextStep);
+            if (!listOfSteps.next()) {
+                throw new EOFException("The steps ended after " + idNextStep + " of "
+                        + numMovements + " steps");
+            }
             idNextStep = idNextStep + 1;
-            return moveTo(nextPosition.x, nextPosition.y);
+            return moveTo(listOfSteps.getX(), listOfSteps.getY());
         } else {
-            System.out.println("NO MORE steps to perform at agent!");
-            return new AMessage("NOMESSAGE","","", "");
+            if (events.isEnabled(EventSink.Level.INFO)) {
+                events.event(EventSink.Level.INFO, "NO MORE steps to perform at agent!");
+            }
+            return answer.set(AMessage.Kind.NOMESSAGE, AMessage.NONE, AMessage.NONE, AMessage.NONE);
         }
     }
 
@@ -236,11 +511,13 @@ public class TreasureFinder {
     public AMessage moveTo( int x, int y )
     {
         // Tell the EnvironmentAgentID that we want  to move
-        AMessage msg, ans;
+        AMessage ans;
 
-        msg = new AMessage("moveto", Integer.toString(x), Integer.toString(y), "" );
-        ans = EnvAgent.acceptMessage( msg );
-        System.out.println("FINDER => moving to : (" + x + "," + y + ")");
+        request.set(AMessage.Kind.MOVETO, x, y, AMessage.NONE);
+        ans = EnvAgent.acceptMessage( request, answer );
+        if (events.isEnabled(EventSink.Level.DEBUG)) {
+            events.event(EventSink.Level.DEBUG, "FINDER => moving to : (" + x + "," + y + ")");
+        }
 
         return ans;
     }
@@ -253,11 +530,13 @@ public class TreasureFinder {
    **/
     public void processMoveAnswer ( AMessage moveans )
     {
-        if ( moveans.getComp(0).equals("movedto") ) {
-          agentX = Integer.parseInt( moveans.getComp(1) );
-          agentY = Integer.parseInt( moveans.getComp(2) );
+        if ( moveans.getKind() == AMessage.Kind.MOVEDTO ) {
+          agentX = moveans.getX();
+          agentY = moveans.getY();
           
-          System.out.println("FINDER => moved to : (" + agentX + "," + agentY + ")"   );
+          if (events.isEnabled(EventSink.Level.DEBUG)) {
+              events.event(EventSink.Level.DEBUG, "FINDER => moved to : (" + agentX + "," + agentY + ")");
+          }
         }
     }
 
@@ -270,317 +549,75 @@ public class TreasureFinder {
 
     public AMessage DetectsAt( )
     {
-        AMessage msg, ans;
+        AMessage ans;
 
-        msg = new AMessage( "detected", Integer.toString(agentX),
-                Integer.toString(agentY), "" );
-        ans = EnvAgent.acceptMessage( msg );
-        System.out.println("FINDER => detecting at : (" + agentX + "," + agentY + ")");
+        request.set(AMessage.Kind.DETECTED, agentX, agentY, AMessage.NONE);
+        ans = EnvAgent.acceptMessage( request, answer );
+        if (events.isEnabled(EventSink.Level.DEBUG)) {
+            events.event(EventSink.Level.DEBUG, "FINDER => detecting at : (" + agentX + "," + agentY + ")");
+        }
         return ans;
     }
 
 
     /**
     *   Process the answer obtained for the query "Detects at (x,y)?"
-    *   by adding the appropriate evidence clause to the formula
+    *   by giving the reading to the inference backend
     *
     *   @param ans message obtained to the query "Detects at (x,y)?".
     *          It will a message with four fields: detected  x y  [1,2,3]
     **/
     public void processDetectorSensorAnswer(AMessage ans) throws IOException, ContradictionException, TimeoutException {
-        if (ans.getComp(0).equals("detected")) {
-            int x = Integer.parseInt(ans.getComp(1));
-            int y = Integer.parseInt(ans.getComp(2));
-            int sensorValue = Integer.parseInt(ans.getComp(3));
-
-            VecInt evidence = new VecInt();
-            if (sensorValue == 1) {
-                System.out.println("WAR => adding evidence for detector 1 at : (" + x + "," + y + ")");
-                discardSensor1(x, y);
-                evidence.insertFirst(-coordToLineal(x, y, DetectorOffset1));
-                solver.addClause(evidence);
-            } else if (sensorValue == 2) {
-                System.out.println("WAR => adding evidence for detector 2 at : (" + x + "," + y + ")");
-                discardSensor2(x, y);
-                evidence.insertFirst(-coordToLineal(x, y, DetectorOffset2));
-                solver.addClause(evidence);
-            } else if (sensorValue == 3) {
-                System.out.println("WAR => adding evidence for detector 3 at : (" + x + "," + y + ")");
-                discardSensor3(x, y);
-                evidence.insertFirst(-coordToLineal(x, y, DetectorOffset3));
-                solver.addClause(evidence);
-            }
-        }
-    }
-
-    private void discardSensor1(int x, int y) {
-        int[][] sensor = {{x, y - 1}, {x, y}, {x, y + 1}, {x - 1, y}, {x + 1, y}};
-        for(int i = 1; i <= WorldDim; i++) {
-            for(int j = 1; j <= WorldDim; j++) {
-                if(!checkPosition(i, j, sensor)) {
-                    tfstate.set(i, j, "X");
-                }
-            }
-        }
-    }
+        if (ans.getKind() == AMessage.Kind.DETECTED) {
+            int x = ans.getX();
+            int y = ans.getY();
+            int sensorValue = ans.getValue();
 
-    private void discardSensor2(int x, int y) {
-        int[][] sensor = {{x + 1, y + 1}, {x + 1, y - 1}, {x - 1, y - 1}, {x - 1, y + 1}};
-        for(int i = 1; i <= WorldDim; i++) {
-            for(int j = 1; j <= WorldDim; j++) {
-                if(!checkPosition(i, j, sensor)) {
-                    tfstate.set(i, j, "X");
-                }
+            if (events.isEnabled(EventSink.Level.DEBUG)) {
+                events.event(EventSink.Level.DEBUG, "WAR => adding evidence for detector " + sensorValue + " at : (" + x + "," + y + ")");
             }
+            inference.addEvidence(x, y, sensorValue);
         }
     }
 
-    private void discardSensor3(int x, int y) {
-        int[][] sensor = {{x + 1, y + 1}, {x + 1, y}, {x + 1, y + 1}, {x, y - 1}, {x, y}, {x, y + 1}, {x - 1, y - 1}, {x - 1, y}, {x - 1, y + 1}};
-        for(int i = 1; i <= WorldDim; i++) {
-            for(int j = 1; j <= WorldDim; j++) {
-                if(checkPosition(i, j, sensor)) {
-                    tfstate.set(i, j, "X");
-                }
-            }
-        }
-    }
-
-    private boolean checkPosition(int i, int j, int[][] sensor) {
-        for(int k = 0; k < sensor.length; k++) {
-            if(i == sensor[k][0] && j == sensor[k][1]) {
-                return true;
-            }
-        }
-        return false;
-    }
-
 
     /**
-    *  This function should add all the clauses stored in the list
-    *  futureToPast to the formula stored in solver.
-    *   Use the function addClause( VecInt ) to add each clause to the solver
+    *  Add to the knowledge of the agent the conclusions obtained in the
+    *  previous step (with the SAT backend, the clauses of futureToPast
+    *  rewritten with the "past" variables)
     *
     **/
     public void addLastFutureClausesToPastClauses() throws IOException, ContradictionException, TimeoutException {
-
-            for (VecInt clause : futureToPast) {
-                solver.addClause(clause);
-            }
-
-            futureToPast = new ArrayList<>();
-            //futureToPast.clear();
-        }
-
+        inference.addLastConclusions();
+    }
 
     /**
-    * This function should check, using the future variables related
-    * to possible positions of Treasure, whether it is a logical consequence
-    * that Treasure is NOT at certain positions. This should be checked for all the
-    * positions of the Treasure World.
-    * The logical consequences obtained, should be then stored in the futureToPast list
-    * but using the variables corresponding to the "past" variables of the same positions
-    *
-    * An efficient version of this function should try to not add to the futureToPast
-    * conclusions that were already added in previous steps, although this will not produce
-    * any bad functioning in the reasoning process with the formula.
+    * Check which positions can not contain the Treasure, with all the
+    * evidence received so far, and mark them in the state of the agent
     **/
     public void performInferenceQuestions() throws IOException, ContradictionException, TimeoutException {
-        for (int x = 1; x <= WorldDim; x += 1) {
-            for (int y = 1; y <= WorldDim; y += 1) {
-                int linealIndex = coordToLineal(x, y, TreasureFutureOffset);
-                // Get the same variable, but in the past subset
-                int linealIndexPast = coordToLineal(x, y, TreasurePastOffset);
-
-                VecInt variablePositive = new VecInt();
-                variablePositive.insertFirst(linealIndex);
-
-                // Check if the variable is already in the list
-                if (!(solver.isSatisfiable(variablePositive))) {
-                    VecInt concPast = new VecInt();
-                    concPast.insertFirst(-(linealIndexPast));
-
-                    futureToPast.add(concPast);
-                }
-            }
-
-        }
+        inference.performInference(tfstate);
     }
 
     /**
-    * This function builds the initial logical formula of the agent and stores it
-    * into the solver object.
-    *
-    *  @return returns the solver object where the formula has been stored
+    * Close the source of the steps still to be performed, and give back
+    * the resources of the inference backend
     **/
-    public ISolver buildGamma() throws UnsupportedEncodingException,
-            FileNotFoundException, IOException, ContradictionException
-    {
-        int totalNumVariables = 100000;
-
-        // You must set this variable to the total number of boolean variables
-        // in your formula Gamma
-        // totalNumVariables =  ??
-        solver = SolverFactory.newDefault();
-        solver.setTimeout(3600);
-        solver.newVar(totalNumVariables);
-        // This variable is used to generate, in a particular sequential order,
-        // the variable indentifiers of all the variables
-        actualLiteral = 1;
-        past();
-        future();
-        pastToFuture();
-        addsensor1_clauses();
-        addsensor2_clauses();
-        addsensor3_clauses();
-
-
-        // call here functions to add the different sets of clauses
-        // of Gamma to the solver object
-
-
-        return solver;
+    public void close() {
+        closeSteps();
+        inference.release();
     }
 
-    private void addsensor1_clauses() throws ContradictionException {
-        DetectorOffset1 = actualLiteral;
-        for (int x = 1; x <= WorldDim; x += 1) {
-            for (int y = 1; y <= WorldDim; y += 1) {
-                int[][] sensor = {{x, y - 1}, {x, y}, {x, y + 1}, {x - 1, y}, {x + 1, y}};
-                int varValue = coordToLineal(x, y, DetectorOffset1); //con esto transformamos las coordenadas a un valor lineal
-                for (int i = 0; i < sensor.length; i++) {
-                        int varValue2 = coordToLineal(sensor[i][0], sensor[i][1], TreasureFutureOffset);
-                        VecInt clause = new VecInt();
-                        clause.insertFirst(varValue);
-                        clause.insertFirst(-varValue2);
-                        solver.addClause(clause);
-                    }
-                }
-                   actualLiteral++;
-            }
-        }
-
-    private void addsensor2_clauses() throws ContradictionException {
-        DetectorOffset2 = actualLiteral;
-        for (int x = 1; x <= WorldDim; x += 1) {
-            for (int y = 1; y <= WorldDim; y += 1) {
-                int[][] sensor = {{x + 1, y + 1}, {x + 1, y - 1}, {x - 1, y - 1}, {x - 1, y + 1}};
-                int varValue = coordToLineal(x, y, DetectorOffset2); //con esto transformamos las coordenadas a un valor lineal
-                for (int i = 0; i < sensor.length; i++) {
-                    if (sensor[i][0] >= 1 && sensor[i][0] <= WorldDim && sensor[i][1] >= 1 && sensor[i][1] <= WorldDim) {
-                        int varValue2 = coordToLineal(sensor[i][0], sensor[i][1], TreasureFutureOffset);
-                        VecInt clause = new VecInt();
-                        clause.insertFirst(varValue);
-                        clause.insertFirst(-varValue2);
-                        solver.addClause(clause);
-                    }
-                }
-                actualLiteral++;
-            }
-        }
-    }
-    private void addsensor3_clauses() throws ContradictionException {
-        DetectorOffset3 = actualLiteral;
-        for (int x = 1; x <= WorldDim; x += 1) {
-            for (int y = 1; y <= WorldDim; y += 1) {
-                int[][] sensor = {{x + 1, y + 1}, {x + 1, y}, {x + 1, y + 1}, {x, y - 1}, {x, y}, {x, y + 1}, {x - 1, y - 1}, {x - 1, y}, {x - 1, y + 1}};
-                int varValue = coordToLineal(x, y, DetectorOffset3);
-                for (int i = 0; i < sensor.length; i++) {
-                    if (sensor[i][0] >= 1 && sensor[i][0] <= WorldDim && sensor[i][1] >= 1 && sensor[i][1] <= WorldDim) {
-                        int varValue2 = coordToLineal(sensor[i][0], sensor[i][1], TreasureFutureOffset);
-                        VecInt clause = new VecInt();
-                        clause.insertFirst(varValue);
-                        clause.insertFirst(-varValue2);
-                        solver.addClause(clause);
-                    }
-                }
-                actualLiteral++;
+    private void closeSteps() {
+        if (listOfSteps != null) {
+            try {
+                listOfSteps.close();
+            } catch (IOException ex) {
+                Logger.getLogger(TreasureFinder.class.getName()).log(Level.WARNING, null, ex);
             }
+            listOfSteps = null;
         }
     }
 
 
-    /**
-     * Adds to solver the atLeastOneEnvelope clause (past)
-     * @throws ContradictionException ContradictionException error
-     */
-    private void past() throws ContradictionException {
-        TreasurePastOffset = actualLiteral;
-        VecInt clause = new VecInt();
-        for (int i = 0; i < WorldLinealDim; i++) {
-            clause.insertFirst(actualLiteral);
-            actualLiteral++;
-        }
-        solver.addClause(clause);
-    }
-    /**
-     * Adds to solver the atLeastOneEnvelope clause (future)
-     * @throws ContradictionException ContradictionException error
-     */
-    private void future() throws ContradictionException {
-        TreasureFutureOffset = actualLiteral;
-        VecInt clause = new VecInt();
-        for (int i = 0; i < WorldLinealDim; i++) {
-            clause.insertFirst(actualLiteral);
-            actualLiteral++;
-        }
-        solver.addClause(clause);
-    }
-
-    /**
-     * Adds the clauses at solver to keep consistency
-     * @throws ContradictionException ContradictionException error
-     */
-    private void pastToFuture() throws ContradictionException {
-        VecInt clause;
-        for (int i = 0; i < WorldLinealDim; i++) {
-            clause = new VecInt();
-            clause.insertFirst(i + TreasurePastOffset);
-            clause.insertFirst(-(i + TreasureFutureOffset));
-            solver.addClause(clause);
-        }
-    }
-
-
-
-
-    /**
-         * Convert a coordinate pair (x,y) to the integer value  t_[x,y]
-         * of variable that stores that information in the formula, using
-         * offset as the initial index for that subset of position variables
-         * (past and future position variables have different variables, so different
-         * offset values)
-         *
-         *  @param x x coordinate of the position variable to encode
-         *  @param y y coordinate of the position variable to encode
-         *  @param offset initial value for the subset of position variables
-         *         (past or future subset)
-         *  @return the integer indentifer of the variable  b_[x,y] in the formula
-        **/
-    public int coordToLineal(int x, int y, int offset) {
-        return ((x - 1) * WorldDim) + (y - 1) + offset;
-    }
-
-
-    /**
-     * Perform the inverse computation to the previous function.
-     * That is, from the identifier t_[x,y] to the coordinates  (x,y)
-     *  that it represents
-     *
-     * @param lineal identifier of the variable
-     * @param offset offset associated with the subset of variables that
-     *        lineal belongs to
-     * @return array with x and y coordinates
-    **/
-    public int[] linealToCoord(int lineal, int offset)
-    {
-        lineal = lineal - offset + 1;
-        int[] coords = new int[2];
-        coords[1] = ((lineal-1) % WorldDim) + 1;
-        coords[0] = (lineal - 1) / WorldDim + 1;
-        return coords;
-    }
-
-
-
 }
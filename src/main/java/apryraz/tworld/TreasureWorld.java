@@ -2,7 +2,9 @@ package apryraz.tworld;
 
 
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import org.sat4j.specs.*;
 import org.sat4j.reader.*;
 
@@ -28,20 +30,39 @@ public class TreasureWorld {
 
 **/
 public static void runStepsSequence(int wDim, int tX, int tY, int numSteps, String fileSteps) throws IOException, ContradictionException, TimeoutException {
+   runStepsSequence(wDim, tX, tY, numSteps, fileSteps, new ConsoleEventSink(EventSink.Level.DEBUG));
+}
+
+/**
+   Same as the previous function, but sending the trace and the states of the
+   agent and the environment to the given sink.
+
+   @param wDim the dimension of world
+   @param tX x coordinate of Barcenas position
+   @param tY y coordinate of Barcenas position
+   @param numSteps num of steps to perform
+   @param fileSteps file name with sequence of steps to perform
+   @param events where the events are sent
+
+**/
+public static void runStepsSequence(int wDim, int tX, int tY, int numSteps, String fileSteps,
+                                    EventSink events) throws IOException, ContradictionException, TimeoutException {
   // Make instances of TreasureFinder agent and environment object classes
-   TreasureFinder TAgent = new TreasureFinder(wDim);
-   TreasureWorldEnv EnvAgent = new TreasureWorldEnv(wDim, tX, tY);
-
-   // Set environment object
-   TAgent.setEnvironment(EnvAgent);
-
-   // load list of steps into the Finder Agent
-   TAgent.loadListOfSteps(numSteps, fileSteps);
-    
-   // Execute sequence of steps with the Agent
-    for(int i = 0; i < numSteps; i++) {
-        TAgent.runNextStep();
-    }
+   try (TreasureFinder TAgent = new TreasureFinder(wDim, events)) {
+     TreasureWorldEnv EnvAgent = new TreasureWorldEnv(wDim, tX, tY);
+     EnvAgent.setEventSink(events);
+
+     // Set environment object
+     TAgent.setEnvironment(EnvAgent);
+
+     // load list of steps into the Finder Agent
+     TAgent.loadListOfSteps(numSteps, fileSteps);
+
+     // Execute sequence of steps with the Agent
+     for(int i = 0; i < numSteps; i++) {
+         TAgent.runNextStep();
+     }
+   }
 }
 
 /**
@@ -51,24 +72,138 @@ public static void runStepsSequence(int wDim, int tX, int tY, int numSteps, Stri
 *  arg[2] = y coordinate of treasure position
 *  arg[3] = num of steps to perform
 *  arg[4] = file name with sequence of steps to perform
+*  arg[5] = (optional) output mode: "console" (default), "info" (no
+*           messages nor states), "quiet" (no output at all) or "json"
+*           (JSON lines with all the events in the standard output)
+*
+*  or, to run a batch of scenarios in parallel:
+*  arg[0] = -batch
+*  arg[1] = manifest file, with the five fields above on each line
+*  arg[2] = (optional) number of threads, by default one per processor
+*
+*  or, to check fixture sets (steps and expected states) in parallel:
+*  arg[0] = -regress
+*  arg[1] = manifest file, in the format of RegressionHarness.loadManifest
+*  arg[2] = (optional) number of threads, by default one per processor
+*
+*  or, to serve the environment of a world to agents in other processes:
+*  arg[0] = -serve
+*  arg[1..3] = dimension of the world and x, y coordinates of the treasure
+*  arg[4] = TCP port to listen on
+*
+*  or, to run the agent with the environment of such a server:
+*  arg[0] = -connect
+*  arg[1], arg[2] = host and port of the server
+*  arg[3..5] = dimension of the world, num of steps and steps file
+*  arg[6] = (optional) output mode, as above
 **/
 public static void main ( String[] args) throws ParseFormatException,
         IOException,  ContradictionException, TimeoutException {
 
-    if (args.length == 5) {
+    if (args.length >= 2 && args[0].equals("-batch")) {
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2])
+                                         : Runtime.getRuntime().availableProcessors();
+        java.util.List<BatchRunner.Scenario> scenarios = BatchRunner.loadManifest(args[1]);
+        long start = System.nanoTime();
+        java.util.List<BatchRunner.ScenarioResult> results;
+        try {
+            results = new BatchRunner(numThreads).runAll(scenarios);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        BatchRunner.printSummary(results, System.nanoTime() - start);
+        return;
+    }
+
+    if (args.length >= 2 && args[0].equals("-regress")) {
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2])
+                                         : Runtime.getRuntime().availableProcessors();
+        java.util.List<RegressionHarness.Fixture> fixtures = RegressionHarness.loadManifest(args[1]);
+        long start = System.nanoTime();
+        java.util.List<RegressionHarness.FixtureResult> results;
+        try {
+            results = new RegressionHarness(numThreads).runAll(fixtures);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        RegressionHarness.printSummary(results, System.nanoTime() - start);
+        return;
+    }
+
+    if (args.length == 5 && args[0].equals("-serve")) {
+        TreasureWorldEnv EnvAgent = new TreasureWorldEnv(Integer.parseInt(args[1]),
+                Integer.parseInt(args[2]), Integer.parseInt(args[3]), EventSink.NONE);
+        EnvironmentServer server = new EnvironmentServer(EnvAgent, null, Integer.parseInt(args[4]));
+        System.out.println("SERVING TREASURE WORLD ON PORT " + server.getPort());
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException ex) {
+            server.close();
+        }
+        return;
+    }
+
+    if ((args.length == 6 || args.length == 7) && args[0].equals("-connect")) {
+        int worldDim = Integer.parseInt(args[3]);
+        int numSteps = Integer.parseInt(args[4]);
+        EventSink events = eventSinkFor(args.length == 7 ? args[6] : "console");
+        try (EnvironmentClient EnvAgent = new EnvironmentClient(args[1], Integer.parseInt(args[2]));
+             TreasureFinder TAgent = new TreasureFinder(worldDim, events)) {
+            TAgent.setEnvironment(EnvAgent);
+            TAgent.loadListOfSteps(numSteps, args[5]);
+            for (int i = 0; i < numSteps; i++) {
+                TAgent.runNextStep();
+            }
+        }
+        events.close();
+        return;
+    }
+
+    if (args.length == 5 || args.length == 6) {
         int worldDim = Integer.parseInt(args[0]);
         int treasureX = Integer.parseInt(args[1]);
         int treasureY = Integer.parseInt(args[2]);
         int numSteps = Integer.parseInt(args[3]);
         String fileSteps = args[4];
+        EventSink events = eventSinkFor(args.length == 6 ? args[5] : "console");
 
-
-        runStepsSequence(worldDim, treasureX, treasureY, numSteps, fileSteps);
-
+        runStepsSequence(worldDim, treasureX, treasureY, numSteps, fileSteps, events);
+        events.close();
+        return;
     }
 
+    // Without arguments, run the second test sequence as a demo
     runStepsSequence(7, 4, 4, 6, "src/test/tests/steps2.txt");
 }
 
+/**
+*  Make the event sink for one of the output modes of the command line
+*
+*  @param mode console, info, quiet or json
+*  @return the sink for that mode
+**/
+static EventSink eventSinkFor(String mode) {
+    switch (mode) {
+        case "console":
+            return new ConsoleEventSink(EventSink.Level.DEBUG);
+        case "info":
+            return new ConsoleEventSink(EventSink.Level.INFO) {
+                public boolean wantsStates() {
+                    return false;
+                }
+            };
+        case "quiet":
+            return EventSink.NONE;
+        case "json":
+            return new AsyncEventSink(new JsonLinesEventSink(
+                    new BufferedWriter(new OutputStreamWriter(System.out)),
+                    EventSink.Level.DEBUG, true), 4096);
+        default:
+            throw new IllegalArgumentException("Unknown output mode: " + mode);
+    }
+}
+
 
 }
@@ -2,17 +2,31 @@
 
 package apryraz.tworld;
 
-import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 
-
-
-
-public class TreasureWorldEnv {
+/**
+*  Environment of the Treasure World: it answers the moveto and detected
+*  messages of the agents. The world does not change after it is made and
+*  answering a message only writes into the answer object given, so one
+*  environment can serve many agents on different threads at the same
+*  time, as long as each thread uses its own message objects.
+**/
+public class TreasureWorldEnv implements Environment {
     /**
      * X,Y position of Treasure and world dimension
      **/
-    int TreasureX, TreasureY, WorldDim;
+    final int TreasureX, TreasureY, WorldDim;
+    /**
+     * Where the received messages are traced
+     **/
+    volatile EventSink events = new ConsoleEventSink(EventSink.Level.DEBUG);
+    /**
+     * Number of messages answered, by type of answer
+     **/
+    final LongAdder moves = new LongAdder();
+    final LongAdder detections = new LongAdder();
+    final LongAdder rejected = new LongAdder();
 
 
     /**
@@ -28,6 +42,29 @@ public class TreasureWorldEnv {
         WorldDim = dim;
     }
 
+    /**
+     * Class constructor with the sink where the received messages are
+     * traced (EventSink.NONE for no output at all)
+     *
+     * @param dim dimension of the world
+     * @param tx  X position of Treasure
+     * @param ty  Y position of Treasure
+     * @param events where the received messages are traced
+     **/
+    public TreasureWorldEnv(int dim, int tx, int ty, EventSink events) {
+        this(dim, tx, ty);
+        this.events = events;
+    }
+
+    /**
+     * Change where the received messages are traced (the console by default)
+     *
+     * @param events the new sink for the events of the environment
+     **/
+    public void setEventSink(EventSink events) {
+        this.events = events;
+    }
+
 
     /**
      * Process a message received by the TFinder agent,
@@ -38,60 +75,79 @@ public class TreasureWorldEnv {
      * @return a msg with the answer to return to the agent
      **/
     public AMessage acceptMessage(AMessage msg) {
-        AMessage ans = new AMessage("voidmsg", "", "", "");
-
-        msg.showMessage();
-        if (msg.getComp(0).equals("moveto")) {
-            int nx = Integer.parseInt(msg.getComp(1));
-            int ny = Integer.parseInt(msg.getComp(2));
-
-            if(withinLimits(nx, ny)) {
-                ans = new AMessage("movedto", msg.getComp(1), msg.getComp(2), "");
-            } else {
-                ans = new AMessage("notmovedto", msg.getComp(1), msg.getComp(2), "");
-            }
-
-        } else if (msg.getComp(0).equals("detected")) {
-            int nx = Integer.parseInt(msg.getComp(1));
-            int ny = Integer.parseInt(msg.getComp(2));
-
-            if (withinLimits(nx, ny)) {
-                ans = new AMessage("detected", msg.getComp(1), msg.getComp(2), sensorValueAssignment(Integer.parseInt(msg.getComp(1)), Integer.parseInt(msg.getComp(2))));
-            } else {
-                ans = new AMessage("notdetectsat", msg.getComp(1), msg.getComp(2), "");
-            }
+        return acceptMessage(msg, new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE));
+    }
+
+    /**
+     * Process a message received by the TFinder agent, writing the answer
+     * into an existing message object instead of making a new one
+     *
+     * @param msg message sent by the Agent
+     * @param ans message object where the answer is written
+     * @return ans, with the answer to return to the agent
+     **/
+    public AMessage acceptMessage(AMessage msg, AMessage ans) {
+        int nx = msg.getX();
+        int ny = msg.getY();
+
+        EventSink sink = events;
+        if (sink.isEnabled(EventSink.Level.DEBUG)) {
+            sink.event(EventSink.Level.DEBUG, msg.toString());
         }
+        switch (msg.getKind()) {
+            case MOVETO:
+                if (withinLimits(nx, ny)) {
+                    moves.increment();
+                    return ans.set(AMessage.Kind.MOVEDTO, nx, ny, AMessage.NONE);
+                }
+                rejected.increment();
+                return ans.set(AMessage.Kind.NOTMOVEDTO, nx, ny, AMessage.NONE);
+            case DETECTED:
+                if (withinLimits(nx, ny)) {
+                    detections.increment();
+                    return ans.set(AMessage.Kind.DETECTED, nx, ny, sensorValueAssignment(nx, ny));
+                }
+                rejected.increment();
+                return ans.set(AMessage.Kind.NOTDETECTSAT, nx, ny, AMessage.NONE);
+            default:
+                rejected.increment();
+                return ans.set(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+        }
+    }
 
-        return ans;
+    int sensorValueAssignment(int x, int y) {
+        return SensorModel.reading(TreasureX, TreasureY, x, y);
     }
 
-    String sensorValueAssignment(int x, int y) {
-        if(sensorValue1(x, y)) {
-            return "1";
-        } else if (sensorValue2(x, y)) {
-            return "2";
-        }
-        return "3";
+    /**
+     * @return number of moveto messages answered with movedto
+     **/
+    public long getMoveCount() {
+        return moves.sum();
     }
 
-    boolean sensorValue1(int x, int y) {
-        int[][] sensor = {{x, y - 1}, {x, y}, {x, y + 1}, {x - 1, y}, {x + 1, y}};
-        for(int i = 0; i < sensor.length; i++) {
-            if(TreasureX == sensor[i][0] && TreasureY == sensor[i][1]) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * @return number of detected messages answered with a reading
+     **/
+    public long getDetectionCount() {
+        return detections.sum();
     }
 
-    boolean sensorValue2(int x, int y) {
-        int[][] sensor = {{x + 1, y + 1}, {x + 1, y - 1}, {x - 1, y - 1}, {x - 1, y + 1}};
-        for(int i = 0; i < sensor.length; i++) {
-            if(TreasureX == sensor[i][0] && TreasureY == sensor[i][1]) {
-                return true;
-            }
-        }
-        return false;
+    /**
+     * @return number of messages answered with notmovedto, notdetectsat or
+     *         voidmsg
+     **/
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Set all the counters of messages to zero
+     **/
+    public void resetCounters() {
+        moves.reset();
+        detections.reset();
+        rejected.reset();
     }
 
         /**
@@ -0,0 +1,38 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static apryraz.tworld.TreasureFinderTest.loadListOfTargetStates;
+import static apryraz.tworld.TreasureFinderTest.statesFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the batches of scenarios run in parallel
+**/
+public class BatchRunnerTest {
+
+    /**
+     * Run the four test sequences as a batch on several threads, and check
+     * the final state of each one
+     **/
+    @Test
+    public void testBatchRunner() throws IOException, InterruptedException {
+        List<BatchRunner.Scenario> scenarios =
+                BatchRunner.loadManifest("src/test/tests/scenarios.txt");
+        assertEquals(4, scenarios.size());
+
+        List<BatchRunner.ScenarioResult> results = new BatchRunner(4).runAll(scenarios);
+        for (int k = 0; k < scenarios.size(); k++) {
+            BatchRunner.Scenario scenario = scenarios.get(k);
+            BatchRunner.ScenarioResult result = results.get(k);
+            assertTrue(result.succeeded());
+            ArrayList<TFState> states = loadListOfTargetStates(scenario.dim, scenario.numSteps, statesFile(k));
+            assertEquals(states.get(scenario.numSteps - 1), result.finalState);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package apryraz.tworld;
+
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static apryraz.tworld.TreasureFinderTest.loadListOfTargetStates;
+import static apryraz.tworld.TreasureFinderTest.statesFile;
+import static apryraz.tworld.TreasureFinderTest.stepsFile;
+import static apryraz.tworld.TreasureFinderTest.testMakeSimpleStep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.*;
+
+/**
+*  Class for testing the environment served to agents in other processes
+**/
+public class EnvironmentServerTest {
+
+    /**
+     * An agent must get the same states with the environment served over
+     * the loopback, and many messages can be in flight at the same time
+     **/
+    @Test
+    public void testEnvironmentServer() throws Exception {
+        TreasureWorldEnv env = new TreasureWorldEnv(8, 5, 4, EventSink.NONE);
+        try (EnvironmentServer server = new EnvironmentServer(env, InetAddress.getLoopbackAddress(), 0);
+             EnvironmentClient client = new EnvironmentClient("127.0.0.1", server.getPort())) {
+            ArrayList<TFState> seqOfStates = loadListOfTargetStates(8, 7, statesFile(2));
+            TreasureFinder TAgent = new TreasureFinder(8, EventSink.NONE);
+            TAgent.setEnvironment(client);
+            TAgent.loadListOfSteps(7, stepsFile(2));
+            for (int i = 0; i < 7; i++) {
+                testMakeSimpleStep(TAgent, seqOfStates.get(i));
+            }
+
+            // All the positions of the world (and some outside), at once
+            AMessage[] requests = new AMessage[10 * 10];
+            AMessage[] answers = new AMessage[requests.length];
+            for (int k = 0; k < requests.length; k++) {
+                requests[k] = new AMessage(k % 2 == 0 ? AMessage.Kind.DETECTED : AMessage.Kind.MOVETO,
+                        k / 10, k % 10, AMessage.NONE);
+                answers[k] = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+            }
+            client.acceptMessages(requests, answers);
+            AMessage expected = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+            for (int k = 0; k < requests.length; k++) {
+                assertEquals(env.acceptMessage(requests[k], expected).toString(), answers[k].toString());
+            }
+
+            List<CompletableFuture<AMessage>> futures = new ArrayList<>();
+            for (int k = 0; k < requests.length; k++) {
+                futures.add(client.submit(requests[k]));
+            }
+            for (int k = 0; k < requests.length; k++) {
+                assertEquals(answers[k].toString(), futures.get(k).get().toString());
+            }
+
+            // Once the connection is closed, the whole batch fails at once
+            client.close();
+            try {
+                client.acceptMessages(requests, answers);
+                fail("Messages sent on a closed connection must fail");
+            } catch (UncheckedIOException ex) {
+                // expected
+            }
+            assertTrue(client.submit(requests[0]).isCompletedExceptionally());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import static apryraz.tworld.TreasureFinderTest.setUpFixture;
+import static apryraz.tworld.TreasureFinderTest.stepsFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.*;
+
+/**
+*  Class for testing the sinks of the events of the agent
+**/
+public class EventSinkTest {
+
+    /**
+     * A quiet agent must reach the same states, and a JSON lines sink must
+     * receive one state per step
+     **/
+    @Test
+    public void testEventSinks() throws
+            IOException, ContradictionException, TimeoutException {
+        StringWriter out = new StringWriter();
+        EventSink json = new JsonLinesEventSink(out, EventSink.Level.INFO, true);
+        TreasureFinder TAgent = setUpFixture(new TreasureFinder(6, json), 0, stepsFile(0));
+        for (int i = 0; i < 5; i++) {
+            TAgent.runNextStep();
+        }
+        json.close();
+
+        String[] lines = out.toString().split("\n");
+        assertFalse(out.toString().contains("DEBUG"));
+        assertEquals("{\"step\":5,\"dim\":6,\"rows\":[\"X X X X X X\",\"X X X X X X\","
+                + "\"X X X X X X\",\"X X ? X X X\",\"X X X X X X\",\"X X X X X X\"]}",
+                lines[lines.length - 1]);
+
+        // A delegate that fails loses its events, but never blocks the agent,
+        // not even with an Error or after closing the sink
+        ArrayList<String> received = new ArrayList<String>();
+        AsyncEventSink async = new AsyncEventSink(new EventSink() {
+            public boolean isEnabled(EventSink.Level level) {
+                return true;
+            }
+
+            public void event(EventSink.Level level, String text) {
+                if (text.startsWith("bad")) {
+                    throw new IllegalStateException(text);
+                } else if (text.startsWith("fatal")) {
+                    throw new Error(text);
+                }
+                received.add(text);
+            }
+
+            public boolean wantsStates() {
+                return false;
+            }
+
+            public void state(int step, TFState state) {
+            }
+        }, 2);
+        for (int i = 0; i < 10; i++) {
+            async.event(EventSink.Level.INFO, "bad " + i);
+        }
+        async.event(EventSink.Level.INFO, "fatal");
+        async.event(EventSink.Level.INFO, "good");
+        async.close();
+        assertEquals(11, async.getFailedEvents());
+        assertEquals("bad 0", async.getFailure().getMessage());
+        assertEquals(1, received.size());
+        for (int i = 0; i < 10; i++) {
+            async.event(EventSink.Level.INFO, "late " + i);
+        }
+        async.close();
+        assertEquals(1, received.size());
+    }
+}
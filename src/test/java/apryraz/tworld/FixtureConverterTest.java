@@ -0,0 +1,108 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import static apryraz.tworld.TreasureFinderTest.FIXTURES;
+import static apryraz.tworld.TreasureFinderTest.setUpFixture;
+import static apryraz.tworld.TreasureFinderTest.statesFile;
+import static apryraz.tworld.TreasureFinderTest.stepsFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.*;
+
+/**
+*  Class for testing the conversion of the test sequences to the binary formats
+**/
+public class FixtureConverterTest {
+
+    /**
+     * Convert the four test sequences to the binary formats, and run them
+     * with the binary steps, checking the states against the binary states
+     **/
+    @Test
+    public void testBinaryFixtures() throws
+            IOException, ContradictionException, TimeoutException {
+        Path dir = Files.createTempDirectory("fixtures");
+        try {
+            for (int k = 0; k < FIXTURES.length; k++) {
+                int dim = FIXTURES[k][0];
+                int numSteps = FIXTURES[k][3];
+                Path steps = dir.resolve("steps" + (k + 1) + ".bin");
+                Path states = dir.resolve("states" + (k + 1) + ".bin");
+                assertEquals(numSteps,
+                        FixtureConverter.convertSteps(dim, Paths.get(stepsFile(k)), steps));
+                assertEquals(numSteps,
+                        FixtureConverter.convertStates(dim, Paths.get(statesFile(k)), states));
+
+                TreasureFinder TAgent = setUpFixture(new TreasureFinder(dim, EventSink.NONE), k, steps.toString());
+                try (StateSnapshotReader expected = new StateSnapshotReader(states)) {
+                    TFState target = new TFState(dim);
+                    for (int i = 1; i <= numSteps; i++) {
+                        assertTrue(expected.read(target));
+                        assertEquals(i, expected.getStep());
+                        TAgent.runNextStep();
+                        assertEquals(target, TAgent.getState());
+                    }
+                    assertFalse(expected.read(target));
+                }
+            }
+
+            // Steps just out of the world are kept, as in the text files
+            Path text = dir.resolve("off.txt");
+            Path steps = dir.resolve("off.bin");
+            Files.write(text, "0,3 7,7 3,3\n".getBytes());
+            assertEquals(3, FixtureConverter.convertSteps(6, text, steps));
+            BinaryStepReader off = new BinaryStepReader(steps, 10);
+            int[][] offSteps = {{0, 3}, {7, 7}, {3, 3}};
+            for (int[] step : offSteps) {
+                assertTrue(off.next());
+                assertEquals(step[0], off.getX());
+                assertEquals(step[1], off.getY());
+            }
+            assertFalse(off.next());
+            Files.write(text, "1,1 300,2\n".getBytes());
+            try {
+                FixtureConverter.convertSteps(6, text, steps);
+                fail("A coordinate that does not fit must give an exception");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage().contains("Step 2 (300,2)"));
+            }
+
+            // Coordinates of two bytes, and closing twice
+            steps = dir.resolve("big.bin");
+            BinaryStepWriter big = new BinaryStepWriter(steps, 300);
+            try (BinaryStepWriter out = big) {
+                out.write(300, 1);
+                out.write(256, 255);
+            }
+            big.close();
+            BinaryStepReader in = new BinaryStepReader(steps, 10);
+            assertEquals(300, in.getDim());
+            assertEquals(2, in.getNumSteps());
+            assertTrue(in.next());
+            assertEquals(300, in.getX());
+            assertEquals(1, in.getY());
+            assertTrue(in.next());
+            assertEquals(256, in.getX());
+            assertEquals(255, in.getY());
+            assertFalse(in.next());
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the pool of solvers with the formula of the agent
+**/
+public class GammaPoolTest {
+
+    /**
+     * Run the four test sequences three times with solvers from a pool:
+     * the reused solvers must give the same states as new ones, with and
+     * without evidence masks and with parallel inference, and a solver
+     * left without any possible position must not go back to the pool
+     **/
+    @Test
+    public void testGammaPool() throws IOException, ContradictionException, TimeoutException {
+        List<RegressionHarness.Fixture> fixtures =
+                RegressionHarness.loadManifest("src/test/tests/infotests.txt");
+        GammaPool gammas = new GammaPool(2);
+        for (int round = 0; round < 3; round++) {
+            boolean masks = round != 1;
+            boolean parallel = round == 2;
+            RegressionHarness harness = new RegressionHarness(1, dim -> {
+                SatInferenceBackend inference = new SatInferenceBackend(dim, masks, gammas);
+                if (parallel && dim == 10) {
+                    try {
+                        inference.setParallelInference(2);
+                    } catch (ContradictionException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+                return inference;
+            });
+            for (RegressionHarness.Fixture fixture : fixtures) {
+                RegressionHarness.FixtureResult result = harness.check(fixture);
+                assertTrue(fixture.name + " round " + round, result.passed());
+            }
+        }
+        // One solver per dimension, and a second one for the parallel inference
+        assertEquals(5, gammas.getBuildCount());
+        assertEquals(8, gammas.getReuseCount());
+
+        SatInferenceBackend wrong = new SatInferenceBackend(6, true, gammas);
+        wrong.addEvidence(1, 1, 1);
+        wrong.addEvidence(6, 6, 1);
+        TFState state = new TFState(6);
+        wrong.performInference(state);
+        assertEquals(0, state.countPossible());
+        wrong.release();
+        new SatInferenceBackend(6, true, gammas).release();
+        assertEquals(6, gammas.getBuildCount());
+        assertEquals(9, gammas.getReuseCount());
+
+        // In a world of one position the clauses of a run can be
+        // simplified by the solver: release must still work, and the
+        // solvers given back must give the right states
+        for (int run = 0; run < 3; run++) {
+            for (boolean masks : new boolean[]{true, false}) {
+                try (TreasureFinder TAgent = new TreasureFinder(1, EventSink.NONE,
+                        new SatInferenceBackend(1, masks, gammas))) {
+                    TAgent.setEnvironment(new TreasureWorldEnv(1, 1, 1, EventSink.NONE));
+                    ArrayList<Position> steps = new ArrayList<Position>();
+                    steps.add(new Position(1, 1));
+                    steps.add(new Position(1, 1));
+                    TAgent.setListOfSteps(steps);
+                    TAgent.runNextStep();
+                    TAgent.runNextStep();
+                    assertEquals(1, TAgent.getState().countPossible());
+                    assertTrue(TAgent.getState().isPossible(1, 1));
+                }
+            }
+        }
+        // Discarding the only position gives a conclusion that the solver
+        // reduces to a unit clause, that can not be removed: the solver
+        // must not go back to the pool
+        SatInferenceBackend contradicted = new SatInferenceBackend(1, true, gammas);
+        TFState none = new TFState(1);
+        none.set(1, 1, "X");
+        contradicted.restoreKnowledge(none);
+        contradicted.release();
+        long builds = gammas.getBuildCount();
+        SatInferenceBackend next = new SatInferenceBackend(1, true, gammas);
+        assertEquals(builds + 1, gammas.getBuildCount());
+        next.addLastConclusions();
+        next.addEvidence(1, 1, 1);
+        TFState one = new TFState(1);
+        next.performInference(one);
+        assertEquals(1, one.countPossible());
+        next.release();
+    }
+}
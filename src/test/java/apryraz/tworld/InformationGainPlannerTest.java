@@ -0,0 +1,52 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import static apryraz.tworld.TreasureFinderTest.FIXTURES;
+import static apryraz.tworld.TreasureFinderTest.fixtureEnvironment;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the planner that chooses the steps of the agent
+**/
+public class InformationGainPlannerTest {
+
+    /**
+     * Choosing its own steps, moving one position at a time, the agent must
+     * locate the Treasure of the four test worlds within the number of
+     * steps of their sequences, with the same states with both backends
+     **/
+    @Test
+    public void testInformationGainPlanner() throws
+            IOException, ContradictionException, TimeoutException {
+        for (int k = 0; k < FIXTURES.length; k++) {
+            int dim = FIXTURES[k][0];
+            TreasureFinder[] agents = {new TreasureFinder(dim, EventSink.NONE),
+                    new TreasureFinder(dim, EventSink.NONE, new BitsetInferenceBackend(dim))};
+            for (TreasureFinder TAgent : agents) {
+                TAgent.setEnvironment(fixtureEnvironment(k));
+                TAgent.planSteps(FIXTURES[k][3], 1);
+            }
+            for (int i = 0; i < FIXTURES[k][3] && !agents[1].isTreasureLocated(); i++) {
+                int fromX = agents[1].agentX;
+                int fromY = agents[1].agentY;
+                agents[0].runNextStep();
+                agents[1].runNextStep();
+                assertEquals(agents[0].getState(), agents[1].getState());
+                if (i > 0) {
+                    assertTrue(Math.abs(agents[1].agentX - fromX) <= 1);
+                    assertTrue(Math.abs(agents[1].agentY - fromY) <= 1);
+                }
+            }
+            assertTrue(agents[1].isTreasureLocated());
+            assertEquals(FIXTURES[k][1], agents[1].getTreasureX());
+            assertEquals(FIXTURES[k][2], agents[1].getTreasureY());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package apryraz.tworld;
+
+import java.util.ArrayList;
+
+import static apryraz.tworld.TreasureFinderTest.fixtureEnvironment;
+import static apryraz.tworld.TreasureFinderTest.loadListOfTargetStates;
+import static apryraz.tworld.TreasureFinderTest.statesFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the search of several agents that share their readings
+**/
+public class MultiAgentSearchTest {
+
+    /**
+     * Several agents sharing their readings must reach the knowledge of one
+     * agent with all the readings, and locate the Treasure together
+     **/
+    @Test
+    public void testMultiAgentSearch() throws Exception {
+        ArrayList<TFState> seqOfStates = loadListOfTargetStates(10, 7, statesFile(3));
+        int[][] steps4 = {{1, 1}, {2, 2}, {3, 3}, {4, 3}, {5, 4}, {6, 4}, {7, 4}};
+        TreasureWorldEnv EnvAgent = fixtureEnvironment(3);
+        MultiAgentSearch search = new MultiAgentSearch(10, EnvAgent, 2);
+        for (int k = 0; k < 2; k++) {
+            ArrayList<Position> steps = new ArrayList<Position>();
+            for (int s = k; s < steps4.length; s += 2) {
+                steps.add(new Position(steps4[s][0], steps4[s][1]));
+            }
+            search.getAgent(k).setListOfSteps(steps);
+        }
+        search.run(4);
+        assertEquals(seqOfStates.get(6), search.getKnowledge().snapshot());
+
+        // Four agents sweeping one quadrant each of a 30x30 world
+        EnvAgent = new TreasureWorldEnv(30, 22, 9);
+        EnvAgent.setEventSink(EventSink.NONE);
+        search = new MultiAgentSearch(30, EnvAgent, 4);
+        for (int k = 0; k < 4; k++) {
+            ArrayList<Position> steps = new ArrayList<Position>();
+            for (int i = 2 + 15 * (k / 2); i <= 15 + 15 * (k / 2); i += 3) {
+                for (int j = 2 + 15 * (k % 2); j <= 15 + 15 * (k % 2); j += 3) {
+                    steps.add(new Position(i, j));
+                }
+            }
+            search.getAgent(k).setListOfSteps(steps);
+        }
+        int total = search.run(25);
+        assertTrue(total <= 100);
+        assertTrue(search.getKnowledge().countPossible() <= 5);
+        // One agent, knowing the readings of all of them, finishes the search
+        search.getAgent(0).planSteps(10, 0);
+        search.run(10);
+        TFState located = search.getKnowledge().snapshot();
+        assertEquals(1, located.countPossible());
+        assertTrue(located.isPossible(22, 9));
+    }
+}
@@ -0,0 +1,61 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static apryraz.tworld.TreasureFinderTest.statesFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the checks of fixture sets in parallel
+**/
+public class RegressionHarnessTest {
+
+    /**
+     * Check the four test sequences of infotests.txt in parallel, with both
+     * inference backends, and check that a wrong expected state stops its
+     * fixture at that step, with the differing position in the report
+     **/
+    @Test
+    public void testRegressionHarness() throws IOException, InterruptedException {
+        List<RegressionHarness.Fixture> fixtures =
+                RegressionHarness.loadManifest("src/test/tests/infotests.txt");
+        assertEquals(4, fixtures.size());
+        assertEquals(10, fixtures.get(3).dim);
+
+        for (RegressionHarness harness : new RegressionHarness[]{new RegressionHarness(4),
+                new RegressionHarness(2, BitsetInferenceBackend::new)}) {
+            List<RegressionHarness.FixtureResult> results = harness.runAll(fixtures);
+            for (int k = 0; k < fixtures.size(); k++) {
+                assertTrue(results.get(k).passed());
+                assertEquals(fixtures.get(k).numSteps, results.get(k).stepsChecked);
+            }
+        }
+
+        // Row 6 of the third state of test1 says (6,1) is still possible
+        Path states = Files.createTempFile("states", ".txt");
+        try {
+            List<String> lines = Files.readAllLines(
+                    Paths.get(statesFile(0)));
+            lines.set(14, "?" + lines.get(14).substring(1));
+            Files.write(states, lines);
+            RegressionHarness.Fixture test1 = fixtures.get(0);
+            RegressionHarness.FixtureResult result = new RegressionHarness(1).check(
+                    new RegressionHarness.Fixture("wrong", test1.dim, test1.tX, test1.tY, test1.numSteps,
+                            test1.stepsFile, states.toString()));
+            assertFalse(result.passed());
+            assertEquals(3, result.failedStep);
+            assertEquals(2, result.stepsChecked);
+            assertTrue(result.diff.startsWith("1 positions differ: (6,1)-"));
+        } finally {
+            Files.delete(states);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package apryraz.tworld;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the inference backend with the formula of the agent
+**/
+public class SatInferenceBackendTest {
+
+    /**
+     * With evidence masks the solver is asked nothing. Without them, the
+     * questions of a step do not grow with the size of the world: at most
+     * 9 for a reading 3 (one per position covered), at most 6 for a
+     * reading 1 (one per position left possible, plus one), and none when
+     * sensing again, instead of one per position still possible (about
+     * 10000 in the first step of a 100x100 world)
+     **/
+    @Test
+    public void testInferenceQuestions() throws ContradictionException, TimeoutException {
+        for (boolean masks : new boolean[]{true, false}) {
+            SatInferenceBackend sat = new SatInferenceBackend(100, masks);
+            TFState state = new TFState(100);
+            sat.addLastConclusions();
+            sat.addEvidence(50, 50, 3);
+            sat.performInference(state);
+            assertTrue(sat.getSolverCalls() <= (masks ? 0 : 9));
+            assertEquals(100 * 100 - 9, state.countPossible());
+
+            long calls = sat.getSolverCalls();
+            sat.addLastConclusions();
+            sat.addEvidence(10, 11, 1);
+            sat.performInference(state);
+            assertTrue(sat.getSolverCalls() - calls <= (masks ? 0 : 6));
+            assertEquals(5, state.countPossible());
+
+            calls = sat.getSolverCalls();
+            sat.addLastConclusions();
+            sat.addEvidence(10, 11, 1);
+            sat.performInference(state);
+            assertEquals(calls, sat.getSolverCalls());
+            assertEquals(5, state.countPossible());
+
+            sat.addLastConclusions();
+            sat.addEvidence(10, 12, 3);
+            sat.performInference(state);
+            assertEquals(1, state.countPossible());
+            assertTrue(state.isPossible(10, 10));
+        }
+    }
+
+    /**
+     * The formula must have exactly the variables of its five subsets
+     * (past, future and three detector readings), also for worlds bigger
+     * than the fixed 100000 variables used before.
+     **/
+    @Test
+    public void testNumberOfVariables() {
+        SatInferenceBackend small = new SatInferenceBackend(6);
+        assertEquals(5 * 6 * 6, small.solver.nVars());
+        assertEquals(small.DetectorOffset3 + 6 * 6 - 1, small.solver.nVars());
+
+        SatInferenceBackend big = new SatInferenceBackend(200);
+        assertEquals(5 * 200 * 200, big.solver.nVars());
+    }
+
+    /**
+     * The clauses of the detector are only added for the positions where
+     * the detector is used, so the initial formula only has the clauses
+     * about the position of the Treasure
+     **/
+    @Test
+    public void testLazyDetectorClauses() throws ContradictionException {
+        SatInferenceBackend sat = new SatInferenceBackend(200);
+        int initial = sat.solver.nConstraints();
+        assertTrue(initial <= 200 * 200 + 3);
+
+        // Reading 1 in the middle: five implications, the disjunction and
+        // the evidence
+        sat.addEvidence(100, 100, 1);
+        assertTrue(sat.solver.nConstraints() - initial <= 5 + 1 + 1);
+        int afterFirst = sat.solver.nConstraints();
+        sat.addEvidence(100, 100, 1);
+        assertEquals(afterFirst, sat.solver.nConstraints());
+    }
+}
@@ -0,0 +1,66 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static apryraz.tworld.TreasureFinderTest.loadListOfTargetStates;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the generator of fixture sets
+**/
+public class ScenarioGeneratorTest {
+
+    /**
+     * The states worked out by the generator from the sensor model must be
+     * the ones of the four test sequences, and the agents with both
+     * backends must pass the generated fixtures of every policy and format
+     **/
+    @Test
+    public void testScenarioGenerator() throws IOException, InterruptedException {
+        List<RegressionHarness.Fixture> fixtures =
+                RegressionHarness.loadManifest("src/test/tests/infotests.txt");
+        for (RegressionHarness.Fixture fixture : fixtures) {
+            ArrayList<TFState> expected = loadListOfTargetStates(fixture.dim, fixture.numSteps,
+                    fixture.statesFile);
+            TFState state = new TFState(fixture.dim);
+            try (StepSource steps = StepSource.open(fixture.stepsFile, fixture.numSteps)) {
+                for (int k = 0; steps.next(); k++) {
+                    ScenarioGenerator.addReading(state, fixture.tX, fixture.tY, steps.getX(), steps.getY());
+                    assertEquals(expected.get(k), state);
+                }
+            }
+        }
+
+        Path dir = Files.createTempDirectory("scenarios");
+        try {
+            List<RegressionHarness.Fixture> generated = new ArrayList<>();
+            for (ScenarioGenerator.Policy policy : ScenarioGenerator.Policy.values()) {
+                generated.add(ScenarioGenerator.generate(dir, policy + "-text", 14, 11, 4, 30, policy, 7, false));
+                generated.add(ScenarioGenerator.generate(dir, policy + "-bin", 17, 2, 16, 40, policy, 7, true));
+            }
+            for (RegressionHarness harness : new RegressionHarness[]{new RegressionHarness(4),
+                    new RegressionHarness(4, BitsetInferenceBackend::new)}) {
+                List<RegressionHarness.FixtureResult> results = harness.runAll(generated);
+                for (int k = 0; k < generated.size(); k++) {
+                    assertTrue(generated.get(k).name, results.get(k).passed());
+                    assertEquals(generated.get(k).numSteps, results.get(k).stepsChecked);
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+}
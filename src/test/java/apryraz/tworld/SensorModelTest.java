@@ -0,0 +1,49 @@
+package apryraz.tworld;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the neighbourhoods of the detector
+**/
+public class SensorModelTest {
+
+    /**
+     * The neighbourhoods of the sensor model must be exactly the positions
+     * of the world where the Treasure gives each reading (any position
+     * of the 3x3 block for reading 3), also on the edges of small worlds
+     **/
+    @Test
+    public void testSensorModel() {
+        for (int dim = 1; dim <= 5; dim++) {
+            SensorModel sensor = SensorModel.of(dim);
+            assertTrue(sensor == SensorModel.of(dim));
+            for (int x = 1; x <= dim; x++) {
+                for (int y = 1; y <= dim; y++) {
+                    for (int reading = 1; reading <= 3; reading++) {
+                        Set<Integer> covered = new HashSet<>();
+                        for (int offset : sensor.neighbourhood(reading, x, y)) {
+                            assertTrue(covered.add(sensor.lineal(x, y) + offset));
+                        }
+                        Set<Integer> expected = new HashSet<>();
+                        for (int i = 1; i <= dim; i++) {
+                            for (int j = 1; j <= dim; j++) {
+                                int given = SensorModel.reading(i, j, x, y);
+                                if (reading == 3 ? given != 3 : given == reading) {
+                                    expected.add(sensor.lineal(i, j));
+                                }
+                            }
+                        }
+                        assertEquals(expected, covered);
+                        assertTrue(sensor.neighbourhood(reading, x, y) == sensor.neighbourhood(reading, x, y));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static apryraz.tworld.TreasureFinderTest.fixtureEnvironment;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.*;
+
+/**
+*  Class for testing the reader of the steps files
+**/
+public class StepFileReaderTest {
+
+    /**
+     * The steps can be given in several lines, only the steps wanted are
+     * read, and a malformed or missing file gives an exception
+     **/
+    @Test
+    public void testStepFileReader() throws IOException {
+        Path file = Files.createTempFile("steps", ".txt");
+        try {
+            Files.write(file, "1,1 2,2\r\n  3,4\n\n10,12 5,5\n".getBytes());
+            StepFileReader reader = new StepFileReader(file, 4);
+            int[][] expected = {{1, 1}, {2, 2}, {3, 4}, {10, 12}};
+            for (int[] step : expected) {
+                assertTrue(reader.next());
+                assertEquals(step[0], reader.getX());
+                assertEquals(step[1], reader.getY());
+            }
+            assertFalse(reader.next());
+            assertEquals(4, reader.getNumRead());
+
+            Files.write(file, "1,1 2;2".getBytes());
+            reader = new StepFileReader(file, 4);
+            assertTrue(reader.next());
+            try {
+                reader.next();
+                fail("A malformed step must give an exception");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage().contains("step 2 at line 1"));
+            }
+
+            // A byte 0xFF is not the end of the file
+            Files.write(file, new byte[] {'1', ',', '1', ' ', (byte) 0xFF, '2', ',', '2'});
+            reader = new StepFileReader(file, 4);
+            assertTrue(reader.next());
+            try {
+                reader.next();
+                fail("A non ASCII byte must give an exception");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage().contains("0xff"));
+            }
+
+            TreasureFinder TAgent = new TreasureFinder(6, EventSink.NONE);
+            TAgent.setEnvironment(fixtureEnvironment(0));
+            TAgent.loadListOfSteps(3, file.toString());
+            TAgent.moveToNext();
+            try {
+                TAgent.moveToNext();
+                fail("A malformed step must give an exception");
+            } catch (IOException ex) {
+                // expected
+            }
+
+            // Closing an agent stopped early closes its steps
+            boolean[] closed = new boolean[1];
+            TAgent.setStepSource(5, new StepSource() {
+                public boolean next() {
+                    return true;
+                }
+
+                public int getX() {
+                    return 2;
+                }
+
+                public int getY() {
+                    return 2;
+                }
+
+                public void close() {
+                    closed[0] = true;
+                }
+            });
+            TAgent.moveToNext();
+            TAgent.close();
+            assertTrue(closed[0]);
+        } finally {
+            Files.delete(file);
+        }
+
+        try {
+            new TreasureFinder(6, EventSink.NONE).loadListOfSteps(3, "src/test/tests/nosteps.txt");
+            fail("A missing steps file must give an exception");
+        } catch (IOException ex) {
+            // expected
+        }
+    }
+}
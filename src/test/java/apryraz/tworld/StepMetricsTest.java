@@ -0,0 +1,69 @@
+package apryraz.tworld;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.sat4j.specs.ContradictionException;
+import org.sat4j.specs.TimeoutException;
+
+import static apryraz.tworld.TreasureFinderTest.setUpFixture;
+import static apryraz.tworld.TreasureFinderTest.stepsFile;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.*;
+
+/**
+*  Class for testing the measures of the steps of the agent
+**/
+public class StepMetricsTest {
+
+    /**
+     * The metrics of a run must have one record per step, with the work of
+     * the solver of each step adding up to the totals of the snapshot
+     **/
+    @Test
+    public void testStepMetrics() throws
+            IOException, ContradictionException, TimeoutException {
+        // Without evidence masks, so that the solver is asked questions
+        TreasureFinder TAgent = new TreasureFinder(10, EventSink.NONE, new SatInferenceBackend(10, false));
+        StepMetrics metrics = TAgent.enableMetrics();
+        StringWriter csv = new StringWriter();
+        StringWriter json = new StringWriter();
+        metrics.addListener(new MetricsWriter(csv, MetricsWriter.Format.CSV));
+        metrics.addListener(new MetricsWriter(json, MetricsWriter.Format.JSON));
+        long[] solverCalls = new long[1];
+        metrics.addListener(record -> solverCalls[0] += record.getSolverCalls());
+        setUpFixture(TAgent, 3, stepsFile(3));
+        for (int i = 0; i < 7; i++) {
+            TAgent.runNextStep();
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(7, snapshot.getNumSteps());
+        // At most 9 questions per step, whatever the reading
+        assertTrue(snapshot.getSolverCalls() > 0);
+        assertTrue(snapshot.getSolverCalls() <= 9 * 7);
+        assertEquals(solverCalls[0], snapshot.getSolverCalls());
+        assertTrue(snapshot.getPropagations() > 0);
+        LatencyHistogram inference = snapshot.getPhaseLatencies(StepMetrics.Phase.INFERENCE);
+        assertEquals(7, inference.getCount());
+        assertTrue(inference.getPercentile(0.5) <= inference.getMax());
+        assertTrue(snapshot.getStepLatencies().getTotal() >= inference.getTotal());
+
+        String[] csvLines = csv.toString().split("\n");
+        assertEquals(8, csvLines.length);
+        assertTrue(csvLines[0].startsWith("step,CONCLUSIONS,MOVE,SENSE,EVIDENCE,INFERENCE,EVENTS,total,solverCalls"));
+        assertTrue(csvLines[7].startsWith("7,"));
+        String[] jsonLines = json.toString().split("\n");
+        assertEquals(7, jsonLines.length);
+        assertTrue(jsonLines[6].startsWith("{\"step\":7,\"CONCLUSIONS\":"));
+
+        TreasureFinder bitset = new TreasureFinder(10, EventSink.NONE, new BitsetInferenceBackend(10));
+        StepMetrics noSolver = bitset.enableMetrics();
+        setUpFixture(bitset, 3, stepsFile(3));
+        bitset.runNextStep();
+        assertEquals(1, noSolver.snapshot().getNumSteps());
+        assertEquals(0, noSolver.snapshot().getSolverCalls());
+    }
+}
@@ -0,0 +1,97 @@
+package apryraz.tworld;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.*;
+
+/**
+*  Class for testing the states of knowledge about the position of the Treasure
+**/
+public class TFStateTest {
+
+    /**
+     * Check the bulk operations of the state of knowledge, and that equal
+     * states have the same hash code
+     **/
+    @Test
+    public void testStateMasks() {
+        TFState state = new TFState(3);
+        assertEquals(9, state.countPossible());
+
+        long[] mask = new long[state.numWords()];
+        mask[0] = 0b000010011L;   // (1,1), (1,2) and (2,2)
+        state.and(mask);
+        assertEquals(3, state.countPossible());
+        assertEquals("?", state.get(2, 2));
+        assertEquals("X", state.get(3, 3));
+
+        state.andNot(mask);
+        assertEquals(0, state.countPossible());
+        state.or(mask);
+
+        TFState other = new TFState(3);
+        for (int i = 1; i <= 3; i++) {
+            for (int j = 1; j <= 3; j++) {
+                other.set(i, j, "X");
+            }
+        }
+        other.set(1, 1, "?");
+        other.set(1, 2, "?");
+        assertFalse(state.equals(other));
+        other.set(2, 2, "?");
+        assertTrue(state.equals(other));
+        assertEquals(state.hashCode(), other.hashCode());
+
+        // (4,1) would be the bit of no position, and (1,4) the one of (2,1)
+        int[][] outside = {{4, 1}, {1, 4}, {0, 2}, {2, 0}};
+        for (int[] position : outside) {
+            try {
+                other.set(position[0], position[1], "?");
+                fail("A position out of the world must give an exception");
+            } catch (IndexOutOfBoundsException ex) {
+                // expected
+            }
+        }
+        assertTrue(state.equals(other));
+    }
+
+    /**
+     * Check retainOnly of TFState and SharedKnowledge against the positions
+     * covered by the readings, in the middle and at the edges of a world
+     * whose neighbourhoods span several words
+     **/
+    @Test
+    public void testRetainOnly() {
+        int dim = 100;
+        SensorModel sensor = SensorModel.of(dim);
+        int[][] positions = {{50, 50}, {1, 1}, {1, 100}, {100, 1}, {100, 100}, {64, 37}};
+        for (int[] position : positions) {
+            int x = position[0];
+            int y = position[1];
+            for (int reading = 1; reading <= 2; reading++) {
+                int[] offsets = sensor.neighbourhood(reading, x, y);
+                TFState state = new TFState(dim);
+                // A position already discarded must stay discarded
+                state.set(x, y, "X");
+                SharedKnowledge shared = new SharedKnowledge(dim);
+                shared.discard(sensor.lineal(x, y), new int[] {0});
+                state.retainOnly(sensor.lineal(x, y), offsets);
+                shared.retainOnly(sensor.lineal(x, y), offsets);
+
+                TFState expected = new TFState(dim);
+                expected.and(new long[expected.numWords()]);
+                for (int offset : offsets) {
+                    int bit = sensor.lineal(x, y) + offset;
+                    expected.set(bit / dim + 1, bit % dim + 1, "?");
+                }
+                expected.set(x, y, "X");
+                assertEquals(expected, state);
+                assertEquals(expected, shared.snapshot());
+                assertEquals(expected.countPossible(), shared.countPossible());
+            }
+        }
+    }
+}
@@ -4,9 +4,12 @@ import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static java.lang.System.exit;
 
@@ -17,6 +20,7 @@ import org.sat4j.minisat.*;
 
 import static junit.framework.TestCase.fail;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.*;
@@ -35,7 +39,7 @@ public class TreasureFinderTest {
      * @param targetState the state that should be equal to the resulting state of
      *                    the agent after performing the next step
      **/
-    public void testMakeSimpleStep(TreasureFinder tAgent,
+    public static void testMakeSimpleStep(TreasureFinder tAgent,
                                    TFState targetState) throws
             IOException, ContradictionException, TimeoutException {
         // Check (assert) whether the resulting state is equal to
@@ -55,7 +59,7 @@ public class TreasureFinderTest {
      * @param br   BufferedReader object interface to the opened file of states
      * @param wDim dimension of the world
      **/
-    public TFState readTargetStateFromFile(BufferedReader br, int wDim) throws
+    public static TFState readTargetStateFromFile(BufferedReader br, int wDim) throws
             IOException {
         TFState tfstate = new TFState(wDim);
         String row;
@@ -80,7 +84,7 @@ public class TreasureFinderTest {
      *                   be the resulting states after each movement in fileSteps
      * @return returns an ArrayList of TFState with the resulting list of states
      **/
-    ArrayList<TFState> loadListOfTargetStates(int wDim, int numStates, String statesFile) {
+    static ArrayList<TFState> loadListOfTargetStates(int wDim, int numStates, String statesFile) {
 
         ArrayList<TFState> listOfStates = new ArrayList<TFState>(numStates);
 
@@ -119,14 +123,33 @@ public class TreasureFinderTest {
      * @param fileStates file name with sequence of target states, that should
      *                   be the resulting states after each movement in fileSteps
      **/
-    public void testMakeSeqOfSteps(int wDim, int tX, int tY,
+    public static void testMakeSeqOfSteps(int wDim, int tX, int tY,
                                    int numSteps, String fileSteps,
                                    String fileStates)
             throws IOException, ContradictionException, TimeoutException {
         // You should make TreasureFinder and TreasureWorldEnv objects to  test.
         // Then load sequence of target states, load sequence of steps into the bAgent
         // and then test the sequence calling testMakeSimpleStep once for each step.
-        TreasureFinder TAgent = new TreasureFinder(wDim);
+        testMakeSeqOfSteps(new TreasureFinder(wDim), wDim, tX, tY, numSteps, fileSteps, fileStates);
+    }
+
+    /**
+     * Same as the previous function, but with an agent already made (for
+     * example, with a particular inference configuration)
+     *
+     * @param TAgent     TreasureFinder agent for a world of dimension wDim
+     * @param wDim       the dimension of world
+     * @param tX         x coordinate of Treasure position
+     * @param tY         y coordinate of Treasure position
+     * @param numSteps   num of steps to perform
+     * @param fileSteps  file name with sequence of steps to perform
+     * @param fileStates file name with sequence of target states, that should
+     *                   be the resulting states after each movement in fileSteps
+     **/
+    public static void testMakeSeqOfSteps(TreasureFinder TAgent, int wDim, int tX, int tY,
+                                   int numSteps, String fileSteps,
+                                   String fileStates)
+            throws IOException, ContradictionException, TimeoutException {
         // load information about the World into the EnvAgent
         TreasureWorldEnv EnvAgent = new TreasureWorldEnv(wDim, tX, tY);
         // Load list of states
@@ -147,6 +170,53 @@ public class TreasureFinderTest {
         }
     }
 
+    /**
+     * The four test sequences of src/test/tests: dimension of the world,
+     * x and y of the Treasure, and number of steps. FIXTURES[k] uses the
+     * files steps(k+1).txt and states(k+1).txt. The tests of the other
+     * classes use these sequences, and the functions above, with static
+     * imports.
+     **/
+    static final int[][] FIXTURES = {{6, 3, 3, 5}, {7, 4, 4, 6}, {8, 5, 4, 7}, {10, 6, 5, 7}};
+
+    static String stepsFile(int k) {
+        return "src/test/tests/steps" + (k + 1) + ".txt";
+    }
+
+    static String statesFile(int k) {
+        return "src/test/tests/states" + (k + 1) + ".txt";
+    }
+
+    /**
+     * @return a new environment of the test sequence k, without trace
+     **/
+    static TreasureWorldEnv fixtureEnvironment(int k) {
+        return new TreasureWorldEnv(FIXTURES[k][0], FIXTURES[k][1], FIXTURES[k][2], EventSink.NONE);
+    }
+
+    /**
+     * Give an agent the environment of the test sequence k, and its steps
+     *
+     * @param TAgent    agent for the world of the sequence
+     * @param k         test sequence, from 0
+     * @param stepsFile steps of the sequence, in any of the formats of
+     *                  loadListOfSteps
+     * @return the agent
+     **/
+    static TreasureFinder setUpFixture(TreasureFinder TAgent, int k, String stepsFile) throws IOException {
+        TAgent.setEnvironment(fixtureEnvironment(k));
+        TAgent.loadListOfSteps(FIXTURES[k][3], stepsFile);
+        return TAgent;
+    }
+
+    /**
+     * Run the test sequence k with an agent, checking the state after each step
+     **/
+    static void runFixture(TreasureFinder TAgent, int k) throws IOException, ContradictionException, TimeoutException {
+        testMakeSeqOfSteps(TAgent, FIXTURES[k][0], FIXTURES[k][1], FIXTURES[k][2], FIXTURES[k][3],
+                stepsFile(k), statesFile(k));
+    }
+
     /**
      * This is an example test. You must replicate this method for each different
      * test sequence, or use some kind of parametric tests with junit
@@ -159,72 +229,239 @@ public class TreasureFinderTest {
         //en la carpeta tests
 
         var fileSteps = "src/test/tests/steps1.txt";
-        if (!new java.io.File(fileSteps).exists()) {
+        if (!new File(fileSteps).exists()) {
             System.out.println("MSG.   => Steps file not found");
             exit(1);
         }
         var fileStates = "src/test/tests/states1.txt";
-        if (!new java.io.File(fileStates).exists()) {
+        if (!new File(fileStates).exists()) {
             System.out.println("MSG.   => States file not found");
             exit(1);
-
-            testMakeSeqOfSteps(6, 3, 3, 5, fileSteps, fileStates);
         }
 
+        testMakeSeqOfSteps(6, 3, 3, 5, fileSteps, fileStates);
+
     }
     @Test
     public void TWorldTest2() throws
             IOException, ContradictionException, TimeoutException {
 
         var fileSteps = "src/test/tests/steps2.txt";
-        if (!new java.io.File(fileSteps).exists()) {
+        if (!new File(fileSteps).exists()) {
             System.out.println("MSG.   => Steps file not found");
             exit(1);
         }
         var fileStates = "src/test/tests/states2.txt";
-        if (!new java.io.File(fileStates).exists()) {
+        if (!new File(fileStates).exists()) {
             System.out.println("MSG.   => States file not found");
             exit(1);
-
-            testMakeSeqOfSteps(7, 4, 4, 6, fileSteps, fileStates);
         }
+
+        testMakeSeqOfSteps(7, 4, 4, 6, fileSteps, fileStates);
     }
     @Test
     public void TWorldTest3() throws
             IOException, ContradictionException, TimeoutException {
 
         var fileSteps = "src/test/tests/steps3.txt";
-        if (!new java.io.File(fileSteps).exists()) {
+        if (!new File(fileSteps).exists()) {
             System.out.println("MSG.   => Steps file not found");
             exit(1);
         }
         var fileStates = "src/test/tests/states3.txt";
-        if (!new java.io.File(fileStates).exists()) {
+        if (!new File(fileStates).exists()) {
             System.out.println("MSG.   => States file not found");
             exit(1);
-
-            testMakeSeqOfSteps(8, 5, 4, 7, fileSteps, fileStates);
         }
+
+        testMakeSeqOfSteps(8, 5, 4, 7, fileSteps, fileStates);
     }
     @Test
     public void TWorldTest4() throws
             IOException, ContradictionException, TimeoutException {
 
         var fileSteps = "src/test/tests/steps4.txt";
-        if (!new java.io.File(fileSteps).exists()) {
+        if (!new File(fileSteps).exists()) {
             System.out.println("MSG.   => Steps file not found");
             exit(1);
         }
         var fileStates = "src/test/tests/states4.txt";
-        if (!new java.io.File(fileStates).exists()) {
+        if (!new File(fileStates).exists()) {
             System.out.println("MSG.   => States file not found");
             exit(1);
+        }
 
-            testMakeSeqOfSteps(10, 6, 5, 7, fileSteps, fileStates);
+        testMakeSeqOfSteps(10, 6, 5, 7, fileSteps, fileStates);
+    }
+
+
+
+    /**
+     * The four test sequences must give the same states when the inference
+     * questions are shared among several copies of the formula
+     **/
+    @Test
+    public void TWorldParallelInferenceTest() throws
+            IOException, ContradictionException, TimeoutException {
+        for (int k = 0; k < FIXTURES.length; k++) {
+            SatInferenceBackend sat = new SatInferenceBackend(FIXTURES[k][0]);
+            sat.setParallelInference(3);
+            try (TreasureFinder TAgent = new TreasureFinder(FIXTURES[k][0], EventSink.NONE, sat)) {
+                runFixture(TAgent, k);
+            }
+        }
+    }
+
+    /**
+     * Both inference backends must give the states of the four test
+     * sequences: the bitset one, and the formula alone, without applying
+     * the readings directly to the state
+     **/
+    @Test
+    public void TWorldInferenceBackendsTest() throws
+            IOException, ContradictionException, TimeoutException {
+        for (int k = 0; k < FIXTURES.length; k++) {
+            int dim = FIXTURES[k][0];
+            runFixture(new TreasureFinder(dim, EventSink.NONE, new BitsetInferenceBackend(dim)), k);
+            runFixture(new TreasureFinder(dim, EventSink.NONE, new SatInferenceBackend(dim, false)), k);
+        }
+    }
+
+    /**
+     * Conclusions and evidence already given to the solver must not be
+     * given again when the agent senses at the same position
+     **/
+    @Test
+    public void testOnlyNewConclusions() throws
+            IOException, ContradictionException, TimeoutException {
+        SatInferenceBackend sat = new SatInferenceBackend(6);
+        TreasureFinder TAgent = new TreasureFinder(6, EventSink.NONE, sat);
+        TAgent.setEnvironment(fixtureEnvironment(0));
+        ArrayList<Position> steps = new ArrayList<Position>();
+        steps.add(new Position(2, 3));
+        steps.add(new Position(2, 3));
+        steps.add(new Position(2, 3));
+        TAgent.setListOfSteps(steps);
+
+        TAgent.runNextStep();
+        assertEquals(36 - 5, sat.futureToPast.size());
+        TAgent.runNextStep();
+        assertEquals(0, sat.futureToPast.size());
+        int constraints = sat.solver.nConstraints();
+        TAgent.runNextStep();
+        assertEquals(0, sat.futureToPast.size());
+        assertEquals(constraints, sat.solver.nConstraints());
+        assertEquals(5, TAgent.getState().countPossible());
+    }
+
+    /**
+     * A run stopped after some steps and resumed from its checkpoint, with
+     * either inference backend, must give the same states as the whole run
+     **/
+    @Test
+    public void testCheckpoint() throws
+            IOException, ContradictionException, TimeoutException {
+        ArrayList<TFState> seqOfStates = loadListOfTargetStates(10, 7, statesFile(3));
+        Path checkpoint = Files.createTempFile("checkpoint", ".bin");
+        try {
+            TreasureFinder first = setUpFixture(new TreasureFinder(10, EventSink.NONE), 3, stepsFile(3));
+            for (int i = 0; i < 3; i++) {
+                first.runNextStep();
+            }
+            first.saveCheckpoint(checkpoint);
+
+            InferenceBackend[] backends = {new SatInferenceBackend(10), new SatInferenceBackend(10, false),
+                    new BitsetInferenceBackend(10)};
+            for (InferenceBackend backend : backends) {
+                TreasureFinder TAgent = setUpFixture(new TreasureFinder(10, EventSink.NONE, backend), 3, stepsFile(3));
+                TAgent.resumeFrom(checkpoint);
+                assertEquals(seqOfStates.get(2), TAgent.getState());
+                for (int i = 3; i < 7; i++) {
+                    testMakeSimpleStep(TAgent, seqOfStates.get(i));
+                }
+            }
+
+            try {
+                TreasureFinder other = new TreasureFinder(8, EventSink.NONE);
+                other.loadListOfSteps(7, stepsFile(2));
+                other.resumeFrom(checkpoint);
+                fail("A checkpoint of another dimension must not be resumed");
+            } catch (IOException ex) {
+                // expected
+            }
+        } finally {
+            Files.delete(checkpoint);
         }
     }
 
+    /**
+     * Once the Treasure is located, the agent must send the located event
+     * once, keep the same state, and ask nothing more to the solver
+     **/
+    @Test
+    public void testStopWhenLocated() throws
+            IOException, ContradictionException, TimeoutException {
+        for (int k = 0; k < FIXTURES.length; k++) {
+            int dim = FIXTURES[k][0];
+            int numSteps = FIXTURES[k][3];
+            ArrayList<TFState> seqOfStates = loadListOfTargetStates(dim, numSteps, statesFile(k));
+            ArrayList<int[]> located = new ArrayList<int[]>();
+            EventSink sink = new EventSink() {
+                public boolean isEnabled(Level level) {
+                    return false;
+                }
+
+                public void event(Level level, String text) {
+                }
+
+                public boolean wantsStates() {
+                    return false;
+                }
+
+                public void state(int step, TFState state) {
+                }
+
+                public void located(int step, int x, int y) {
+                    located.add(new int[]{step, x, y});
+                }
+            };
+            SatInferenceBackend sat = new SatInferenceBackend(dim);
+            TreasureFinder TAgent = setUpFixture(new TreasureFinder(dim, sink, sat), k, stepsFile(k));
+            TAgent.setStopWhenLocated(true);
+            StepMetrics metrics = TAgent.enableMetrics();
+
+            int constraints = 0;
+            int sensed = 0;
+            for (int i = 0; i < numSteps; i++) {
+                if (TAgent.isTreasureLocated()) {
+                    assertEquals(constraints, sat.solver.nConstraints());
+                } else {
+                    sensed++;
+                }
+                testMakeSimpleStep(TAgent, seqOfStates.get(i));
+                constraints = sat.solver.nConstraints();
+                assertEquals(seqOfStates.get(i).countPossible() == 1, TAgent.isTreasureLocated());
+            }
+            if (TAgent.isTreasureLocated()) {
+                assertEquals(1, located.size());
+                assertEquals(FIXTURES[k][1], located.get(0)[1]);
+                assertEquals(FIXTURES[k][2], located.get(0)[2]);
+                assertEquals(FIXTURES[k][1], TAgent.getTreasureX());
+                assertEquals(FIXTURES[k][2], TAgent.getTreasureY());
+            } else {
+                assertEquals(0, located.size());
+            }
 
+            // The skipped phases are not in the latencies of the phases
+            MetricsSnapshot snapshot = metrics.snapshot();
+            assertEquals(numSteps, snapshot.getNumSteps());
+            assertEquals(numSteps, snapshot.getPhaseLatencies(StepMetrics.Phase.MOVE).getCount());
+            for (StepMetrics.Phase phase : new StepMetrics.Phase[] {StepMetrics.Phase.SENSE,
+                    StepMetrics.Phase.EVIDENCE, StepMetrics.Phase.INFERENCE}) {
+                assertEquals(sensed, snapshot.getPhaseLatencies(phase).getCount());
+            }
+        }
+    }
 
     @Test
     public void testSolver() throws ContradictionException, TimeoutException {
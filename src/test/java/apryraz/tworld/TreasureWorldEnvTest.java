@@ -0,0 +1,79 @@
+package apryraz.tworld;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+/**
+*  Class for testing the environment of the Treasure World
+**/
+public class TreasureWorldEnvTest {
+
+    /**
+     * Check the answers of the environment, both with the typed fields and
+     * with the text form of the messages
+     **/
+    @Test
+    public void testMessages() {
+        TreasureWorldEnv env = new TreasureWorldEnv(6, 3, 3);
+        AMessage ans = env.acceptMessage(new AMessage("detected", "2", "3", ""));
+        assertEquals(AMessage.Kind.DETECTED, ans.getKind());
+        assertEquals(1, ans.getValue());
+        assertEquals("1", ans.getComp(3));
+
+        AMessage reused = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+        env.acceptMessage(new AMessage(AMessage.Kind.MOVETO, 7, 1, AMessage.NONE), reused);
+        assertEquals("notmovedto", reused.getComp(0));
+        assertEquals("", reused.getComp(3));
+        env.acceptMessage(new AMessage(AMessage.Kind.DETECTED, 2, 2, AMessage.NONE), reused);
+        assertEquals(2, reused.getValue());
+    }
+
+    /**
+     * One environment answering several threads at the same time must give
+     * the readings of the detector neighbourhoods, and count every message
+     **/
+    @Test
+    public void testSharedEnvironment() throws Exception {
+        int dim = 20;
+        TreasureWorldEnv env = new TreasureWorldEnv(dim, 7, 12, EventSink.NONE);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            ArrayList<Future<Integer>> wrong = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                wrong.add(pool.submit(() -> {
+                    AMessage request = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+                    AMessage answer = new AMessage(AMessage.Kind.VOIDMSG, AMessage.NONE, AMessage.NONE, AMessage.NONE);
+                    int errors = 0;
+                    for (int r = 0; r < 100; r++) {
+                        for (int x = 0; x <= dim + 1; x++) {
+                            for (int y = 1; y <= dim; y++) {
+                                env.acceptMessage(request.set(AMessage.Kind.DETECTED, x, y, AMessage.NONE), answer);
+                                int dx = Math.abs(x - 7), dy = Math.abs(y - 12);
+                                int expected = dx + dy <= 1 ? 1 : dx == 1 && dy == 1 ? 2 : 3;
+                                if (x < 1 || x > dim ? answer.getKind() != AMessage.Kind.NOTDETECTSAT
+                                        : answer.getValue() != expected) {
+                                    errors++;
+                                }
+                            }
+                        }
+                    }
+                    return errors;
+                }));
+            }
+            for (Future<Integer> errors : wrong) {
+                assertEquals(0, (int) errors.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(4L * 100 * dim * dim, env.getDetectionCount());
+        assertEquals(4L * 100 * 2 * dim, env.getRejectedCount());
+        assertEquals(0, env.getMoveCount());
+    }
+}
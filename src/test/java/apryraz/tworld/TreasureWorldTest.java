@@ -0,0 +1,31 @@
+package apryraz.tworld;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.*;
+
+/**
+*  Class for testing the command line of the Treasure World
+**/
+public class TreasureWorldTest {
+
+    /**
+     * In quiet mode, a run of a test sequence must not write anything to
+     * the standard output
+     **/
+    @Test
+    public void testQuietMode() throws Exception {
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(captured, true));
+        try {
+            TreasureWorld.main(new String[]{"6", "3", "3", "5", "src/test/tests/steps1.txt", "quiet"});
+        } finally {
+            System.setOut(stdout);
+        }
+        assertEquals("", captured.toString());
+    }
+}